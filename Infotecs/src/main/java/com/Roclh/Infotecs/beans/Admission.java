@@ -0,0 +1,17 @@
+package com.Roclh.Infotecs.beans;
+
+import com.Roclh.Infotecs.service.AdmissionService;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a request handler with the class of its operation for the admission control
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Admission {
+    AdmissionService.Operation value();
+}
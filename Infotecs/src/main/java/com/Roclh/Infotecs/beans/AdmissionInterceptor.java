@@ -0,0 +1,70 @@
+package com.Roclh.Infotecs.beans;
+
+import com.Roclh.Infotecs.service.AdmissionService;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+@Component
+public class AdmissionInterceptor implements HandlerInterceptor, WebMvcConfigurer {
+    private static final String START_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".start";
+
+    private final AdmissionService admissionService;
+
+    public AdmissionInterceptor(AdmissionService admissionService) {
+        this.admissionService = admissionService;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this);
+    }
+
+    /**
+     * Method that rejects the request with 429 status if there are too many requests of its class in flight
+     *
+     * @return True if the request is admitted, else False
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        AdmissionService.Operation operation = getOperation(handler);
+        if (operation == null) {
+            return true;
+        }
+        if (!admissionService.tryAcquire(operation)) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader("Retry-After", "1");
+            response.getWriter().write("Too many " + operation.name().toLowerCase() + " requests");
+            return false;
+        }
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    /**
+     * Method that releases the admitted request with its latency
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start != null) {
+            admissionService.release(getOperation(handler), System.nanoTime() - (Long) start);
+        }
+    }
+
+    private static AdmissionService.Operation getOperation(Object handler) {
+        if (handler instanceof HandlerMethod) {
+            Admission admission = ((HandlerMethod) handler).getMethodAnnotation(Admission.class);
+            if (admission != null) {
+                return admission.value();
+            }
+        }
+        return null;
+    }
+}
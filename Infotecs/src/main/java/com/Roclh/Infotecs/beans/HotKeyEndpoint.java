@@ -0,0 +1,47 @@
+package com.Roclh.Infotecs.beans;
+
+import com.Roclh.Infotecs.service.HotKeyService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "hotkeys")
+public class HotKeyEndpoint {
+
+    private final HotKeyService hotKeyService;
+
+    public HotKeyEndpoint(HotKeyService hotKeyService) {
+        this.hotKeyService = hotKeyService;
+    }
+
+    /**
+     * Method that realizes /actuator/hotkeys request
+     *
+     * @return the 10 most accessed keys with their estimated counts and rates
+     */
+    @ReadOperation
+    public Map<String, Object> hotKeys() {
+        return hotKeys(10);
+    }
+
+    /**
+     * Method that realizes /actuator/hotkeys/{limit} request
+     *
+     * @param limit Maximum number of returned keys
+     * @return the most accessed keys with their estimated counts and rates
+     */
+    @ReadOperation
+    public Map<String, Object> hotKeys(@Selector int limit) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", hotKeyService.isEnabled());
+        response.put("sampleRate", hotKeyService.getSampleRate());
+        response.put("windowStart", hotKeyService.getWindowStart());
+        response.put("keys", hotKeyService.top(limit));
+        return response;
+    }
+}
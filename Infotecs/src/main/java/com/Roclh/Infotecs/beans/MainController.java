@@ -1,12 +1,23 @@
 package com.Roclh.Infotecs.beans;
 
+import com.Roclh.Infotecs.service.AdmissionService;
+import com.Roclh.Infotecs.service.HotKeyService;
 import com.Roclh.Infotecs.service.KeyValueService;
+import com.Roclh.Infotecs.service.NamespaceService;
 import com.Roclh.Infotecs.wrappers.KeyValue;
+import com.Roclh.Infotecs.wrappers.RawBodyReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.xml.bind.ValidationException;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.Optional;
 
 @RestController
@@ -14,20 +25,38 @@ import java.util.Optional;
 @EnableScheduling
 public class MainController{
 
-    private final KeyValueService keyValueService = new KeyValueService();
+    private final NamespaceService namespaceService;
+    private final HotKeyService hotKeyService;
+    private final RawBodyReader rawBodyReader;
+
+    public MainController(NamespaceService namespaceService, HotKeyService hotKeyService,
+                          @Value("${keyvalue.raw.max-size:67108864}") int maxRawSize) {
+        this.namespaceService = namespaceService;
+        this.hotKeyService = hotKeyService;
+        this.rawBodyReader = new RawBodyReader(maxRawSize);
+    }
 
     /**
      * Method that realizes get request
      *
      * @param key Specified key of the keyValue
-     * @return value of the specified keyValue
-     * @throws ValidationException if there is no such key in memory
+     * @param namespace Name of the namespace, the default namespace if it's not specified
+     * @param webRequest request that may contain If-None-Match header
+     * @return value of the specified keyValue, nothing with 304 status if it wasn't modified
+     * @throws ValidationException if there is no such key or namespace in memory
      */
+    @Admission(AdmissionService.Operation.READ)
     @GetMapping("/get")
     @ResponseBody
-    public String get(@RequestParam(name="key") String key) throws ValidationException {
+    public String get(@RequestParam(name="key") String key, @RequestParam(name="namespace") Optional<String> namespace, WebRequest webRequest) throws ValidationException {
         System.out.println("Handling get request by key: " + key);
-        return keyValueService.get(key).getValue();
+        KeyValueService keyValueService = namespaceService.get(namespace);
+        hotKeyService.record(namespace.orElse(NamespaceService.DEFAULT), key, HotKeyService.Operation.GET);
+        KeyValue keyValue = keyValueService.get(key);
+        if (webRequest.checkNotModified(keyValueService.getETag(keyValue))) {
+            return null;
+        }
+        return keyValue.getValue();
     }
 
     /**
@@ -35,54 +64,152 @@ public class MainController{
      *
      * @param key Specified key of the keyValue
      * @param value of the specified keyValue
-     * @param ttl Specified time of existence of a new KeyValue
-     * @return True if it's created, False if not
+     * @param ttl Specified time of existence of a new KeyValue, default ttl of the namespace if it's not specified
+     * @param namespace Name of the namespace, the default namespace if it's not specified
+     * @return True if it's created, False if not or if the namespace quota is exceeded
+     * @throws ValidationException if there is no such namespace
      */
+    @Admission(AdmissionService.Operation.WRITE)
     @PostMapping("/set")
     @ResponseBody
-    public boolean set(@RequestParam(name="key") String key, @RequestParam(name="value") String value, @RequestParam(name="ttl") Optional<Long> ttl){
-        System.out.println("Handling set request: key:\""+key + "\", value:\""+value+"\", ttl:\""+ttl.orElseGet(KeyValue::getDefaultTtl)+"\"");
-        return keyValueService.set(key, value, ttl.orElseGet(KeyValue::getDefaultTtl));
+    public boolean set(@RequestParam(name="key") String key, @RequestParam(name="value") String value, @RequestParam(name="ttl") Optional<Long> ttl, @RequestParam(name="namespace") Optional<String> namespace) throws ValidationException {
+        KeyValueService keyValueService = namespaceService.get(namespace);
+        System.out.println("Handling set request: key:\""+key + "\", value:\""+value+"\", ttl:\""+ttl.orElseGet(keyValueService::getDefaultTtl)+"\"");
+        hotKeyService.record(namespace.orElse(NamespaceService.DEFAULT), key, HotKeyService.Operation.SET);
+        return keyValueService.set(key, value, ttl.orElseGet(keyValueService::getDefaultTtl));
+    }
+
+    /**
+     * Method that realizes raw get request, the stored bytes are written to the response as is
+     *
+     * @param key Specified key of the keyValue
+     * @param namespace Name of the namespace, the default namespace if it's not specified
+     * @param request request that may contain If-None-Match header
+     * @param response response where the value is written as application/octet-stream
+     * @throws ValidationException if there is no such key or namespace in memory
+     * @throws IOException if it's impossible to write the response
+     */
+    @Admission(AdmissionService.Operation.READ)
+    @GetMapping(value = "/raw/{key}", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void getRaw(@PathVariable(name="key") String key, @RequestParam(name="namespace") Optional<String> namespace, HttpServletRequest request, HttpServletResponse response) throws ValidationException, IOException {
+        System.out.println("Handling raw get request by key: " + key);
+        KeyValueService keyValueService = namespaceService.get(namespace);
+        hotKeyService.record(namespace.orElse(NamespaceService.DEFAULT), key, HotKeyService.Operation.GET);
+        KeyValue keyValue = keyValueService.get(key);
+        if (new ServletWebRequest(request, response).checkNotModified(keyValueService.getETag(keyValue))) {
+            return;
+        }
+        byte[] value = keyValue.getBytes();
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(value.length);
+        response.getOutputStream().write(value);
+    }
+
+    /**
+     * Method that realizes changes request, so pollers get only keyValues changed since their last poll
+     *
+     * @param since Version from X-Version header of the previous response, 0 for all values
+     * @param namespace Name of the namespace, the default namespace if it's not specified
+     * @param response response where the current version is put into X-Version header
+     * @return Json string with changed values and removed keys in the delta dump format
+     * @throws ValidationException if removed keys since that version were already forgotten or there is no such namespace
+     */
+    @Admission(AdmissionService.Operation.READ)
+    @GetMapping("/changes")
+    @ResponseBody
+    public String changes(@RequestParam(name="since") Optional<Long> since, @RequestParam(name="namespace") Optional<String> namespace, HttpServletResponse response) throws ValidationException {
+        System.out.println("Handling changes request since: " + since.orElse(0L));
+        KeyValueService keyValueService = namespaceService.get(namespace);
+        long version = keyValueService.getSequence();
+        String changes = keyValueService.getChanges(since.orElse(0L));
+        response.setHeader("X-Version", String.valueOf(version));
+        return changes;
+    }
+
+    /**
+     * Method that realizes raw set request, the request body is stored as the value without decoding
+     *
+     * @param key Specified key of the keyValue
+     * @param ttl Specified time of existence of a new KeyValue, default ttl of the namespace if it's not specified
+     * @param namespace Name of the namespace, the default namespace if it's not specified
+     * @param request request with application/octet-stream body
+     * @return True if it's created, False if not or if the namespace quota is exceeded
+     * @throws ValidationException if the body is larger than keyvalue.raw.max-size or incomplete, or there is no such namespace
+     * @throws IOException if it's impossible to read the request
+     */
+    @Admission(AdmissionService.Operation.WRITE)
+    @PutMapping(value = "/raw/{key}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @ResponseBody
+    public boolean setRaw(@PathVariable(name="key") String key, @RequestParam(name="ttl") Optional<Long> ttl, @RequestParam(name="namespace") Optional<String> namespace, HttpServletRequest request) throws ValidationException, IOException {
+        KeyValueService keyValueService = namespaceService.get(namespace);
+        System.out.println("Handling raw set request: key:\""+key + "\", length:\""+request.getContentLengthLong()+"\", ttl:\""+ttl.orElseGet(keyValueService::getDefaultTtl)+"\"");
+        hotKeyService.record(namespace.orElse(NamespaceService.DEFAULT), key, HotKeyService.Operation.SET);
+        byte[] value = rawBodyReader.read(request.getInputStream(), request.getContentLengthLong());
+        return keyValueService.set(key, value, ttl.orElseGet(keyValueService::getDefaultTtl));
     }
 
     /**
      * Method that realizes remove request
      *
      * @param key Specified key of the keyValue
+     * @param namespace Name of the namespace, the default namespace if it's not specified
      * @return value of the removed keyValue
-     * @throws ValidationException if there is no such key in memory
+     * @throws ValidationException if there is no such key or namespace in memory
      */
+    @Admission(AdmissionService.Operation.WRITE)
     @DeleteMapping("/remove")
     @ResponseBody
-    public String remove(@RequestParam(name="key") String key) throws ValidationException {
+    public String remove(@RequestParam(name="key") String key, @RequestParam(name="namespace") Optional<String> namespace) throws ValidationException {
         System.out.println("Handling remove request: key:\""+key+"\"");
-        return keyValueService.remove(key);
+        return namespaceService.get(namespace).remove(key);
     }
 
     /**
      * Method that realizes load request
      *
+     * @param namespace Name of the namespace, the default namespace if it's not specified
      * @return true if it loaded
      * @throws FileNotFoundException if there hasn't been any dumps yet
+     * @throws ValidationException if there is no such namespace
      */
+    @Admission(AdmissionService.Operation.BULK)
     @PostMapping("/load")
     @ResponseBody
-    public boolean load() throws FileNotFoundException {
+    public boolean load(@RequestParam(name="namespace") Optional<String> namespace) throws FileNotFoundException, ValidationException {
         System.out.println("Handling load request");
-        return keyValueService.load();
+        return namespaceService.get(namespace).load();
     }
 
     /**
      * Method that realizes dump request
      *
+     * @param namespace Name of the namespace, the default namespace if it's not specified
      * @return Json string with all values if it dumped
-     * @throws ValidationException if it's impossible to create a dump.txt file
+     * @throws ValidationException if it's impossible to create a dump.txt file or there is no such namespace
      */
+    @Admission(AdmissionService.Operation.BULK)
     @GetMapping("/dump")
     @ResponseBody
-    public String dump() throws ValidationException {
+    public String dump(@RequestParam(name="namespace") Optional<String> namespace) throws ValidationException {
         System.out.println("Handling dump request");
-        return keyValueService.dump();
+        return namespaceService.get(namespace).dump();
+    }
+
+    /**
+     * Method that realizes delta dump request
+     *
+     * @param since Checkpoint to dump changes from, the last dump checkpoint by default
+     * @param namespace Name of the namespace, the default namespace if it's not specified
+     * @return Json string with changed values and removed keys if it dumped
+     * @throws ValidationException if it's impossible to create a delta file or there is no such namespace
+     */
+    @Admission(AdmissionService.Operation.BULK)
+    @GetMapping("/dump/delta")
+    @ResponseBody
+    public String dumpDelta(@RequestParam(name="since") Optional<Long> since, @RequestParam(name="namespace") Optional<String> namespace) throws ValidationException {
+        System.out.println("Handling delta dump request");
+        KeyValueService keyValueService = namespaceService.get(namespace);
+        return keyValueService.dumpDelta(since.orElseGet(keyValueService::getCheckpoint));
     }
 
     /**
@@ -90,6 +217,6 @@ public class MainController{
      */
     @Scheduled(fixedRate = 1)
     public void check(){
-        keyValueService.checkTime();
+        namespaceService.checkTime();
     }
 }
@@ -0,0 +1,66 @@
+package com.Roclh.Infotecs.beans;
+
+import com.Roclh.Infotecs.service.AdmissionService;
+import com.Roclh.Infotecs.service.NamespaceService;
+import org.springframework.web.bind.annotation.*;
+import javax.xml.bind.ValidationException;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/namespaces")
+public class NamespaceController {
+
+    private final NamespaceService namespaceService;
+
+    public NamespaceController(NamespaceService namespaceService) {
+        this.namespaceService = namespaceService;
+    }
+
+    /**
+     * Method that realizes namespace create request
+     *
+     * @param name Name of a new namespace
+     * @param ttl Default ttl of keyValues in the namespace
+     * @param maxEntries Maximum number of keyValues in the namespace, 0 means unlimited
+     * @param maxMemory Maximum estimated size of keys and values in bytes, 0 means unlimited
+     * @return True if it's created, False if it already exists
+     * @throws ValidationException if the name or the ttl is incorrect or there are too many namespaces
+     */
+    @Admission(AdmissionService.Operation.WRITE)
+    @PostMapping("/create")
+    @ResponseBody
+    public boolean create(@RequestParam(name="name") String name, @RequestParam(name="ttl") Optional<Long> ttl,
+                          @RequestParam(name="maxEntries") Optional<Long> maxEntries,
+                          @RequestParam(name="maxMemory") Optional<Long> maxMemory) throws ValidationException {
+        System.out.println("Handling namespace create request: name:\""+name+"\"");
+        return namespaceService.create(name, ttl, maxEntries, maxMemory);
+    }
+
+    /**
+     * Method that realizes namespace drop request
+     *
+     * @param name Name of the namespace
+     * @return number of dropped keyValues
+     * @throws ValidationException if there is no such namespace or it's the default one
+     */
+    @Admission(AdmissionService.Operation.WRITE)
+    @DeleteMapping("/drop")
+    @ResponseBody
+    public int drop(@RequestParam(name="name") String name) throws ValidationException {
+        System.out.println("Handling namespace drop request: name:\""+name+"\"");
+        return namespaceService.drop(name);
+    }
+
+    /**
+     * Method that realizes namespace stats request
+     *
+     * @return settings and usage of all namespaces
+     */
+    @Admission(AdmissionService.Operation.READ)
+    @GetMapping("/stats")
+    @ResponseBody
+    public Map<String, Map<String, Object>> stats() {
+        return namespaceService.stats();
+    }
+}
@@ -0,0 +1,50 @@
+package com.Roclh.Infotecs.beans;
+
+import com.Roclh.Infotecs.service.PreloadService;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+@Component
+public class PreloadHealthIndicator implements HealthIndicator {
+
+    private final PreloadService preloadService;
+
+    public PreloadHealthIndicator(PreloadService preloadService) {
+        this.preloadService = preloadService;
+    }
+
+    /**
+     * Method that reports preload progress, the application is out of service until the preload is over
+     *
+     * @return UP if preload is disabled or finished, OUT_OF_SERVICE while loading, DOWN if it failed
+     */
+    @Override
+    public Health health() {
+        Health.Builder builder;
+        switch (preloadService.getState()) {
+            case DISABLED:
+            case LOADED:
+                builder = Health.up();
+                break;
+            case FAILED:
+                builder = Health.down();
+                break;
+            default:
+                builder = Health.outOfService();
+        }
+        builder.withDetail("state", preloadService.getState());
+        if (preloadService.getSource() != null) {
+            builder.withDetail("source", preloadService.getSource())
+                    .withDetail("total", preloadService.getTotal())
+                    .withDetail("parsed", preloadService.getParsed())
+                    .withDetail("loaded", preloadService.getLoaded())
+                    .withDetail("durationMs", preloadService.getDuration())
+                    .withDetail("valuesPerSecond", preloadService.getThroughput());
+        }
+        if (preloadService.getStartupTime() > 0) {
+            builder.withDetail("startupMs", preloadService.getStartupTime());
+        }
+        return builder.build();
+    }
+}
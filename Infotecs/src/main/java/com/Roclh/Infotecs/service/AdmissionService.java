@@ -0,0 +1,165 @@
+package com.Roclh.Infotecs.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limits per operation class. Read and write limits adapt to latency with a gradient
+ * limiter: the limit shrinks when the current latency grows above the long-term average and grows
+ * by about sqrt(limit) while latency stays flat. Bulk operations have a fixed limit.
+ */
+@Service
+public class AdmissionService {
+    public enum Operation {READ, WRITE, BULK}
+
+    private final boolean enabled;
+    private final Map<Operation, Limiter> limiters = new EnumMap<>(Operation.class);
+
+    /**
+     * Main constructor of the AdmissionService object
+     *
+     * @param meterRegistry registry where limits, in-flight requests and rejections are published
+     * @param enabled True if requests over the limits should be rejected
+     * @param adaptive True if read and write limits should adapt to latency
+     * @param readLimit Initial concurrency limit of read requests
+     * @param writeLimit Initial concurrency limit of write requests
+     * @param bulkLimit Concurrency limit of dump and load requests
+     * @param maxLimit Upper bound of adaptive limits
+     */
+    public AdmissionService(MeterRegistry meterRegistry,
+                            @Value("${keyvalue.admission.enabled:false}") boolean enabled,
+                            @Value("${keyvalue.admission.adaptive:true}") boolean adaptive,
+                            @Value("${keyvalue.admission.read-limit:200}") int readLimit,
+                            @Value("${keyvalue.admission.write-limit:100}") int writeLimit,
+                            @Value("${keyvalue.admission.bulk-limit:1}") int bulkLimit,
+                            @Value("${keyvalue.admission.max-limit:1000}") int maxLimit) {
+        this.enabled = enabled;
+        limiters.put(Operation.READ, new Limiter(readLimit, maxLimit, adaptive));
+        limiters.put(Operation.WRITE, new Limiter(writeLimit, maxLimit, adaptive));
+        limiters.put(Operation.BULK, new Limiter(bulkLimit, bulkLimit, false));
+        limiters.forEach((operation, limiter) -> {
+            String tag = operation.name().toLowerCase();
+            limiter.rejected = Counter.builder("keyvalue.admission.rejected")
+                    .description("Requests rejected by admission control")
+                    .tag("operation", tag)
+                    .register(meterRegistry);
+            Gauge.builder("keyvalue.admission.limit", limiter, Limiter::getLimit)
+                    .tag("operation", tag)
+                    .register(meterRegistry);
+            Gauge.builder("keyvalue.admission.inflight", limiter.inflight, AtomicInteger::get)
+                    .tag("operation", tag)
+                    .register(meterRegistry);
+        });
+    }
+
+    /**
+     * Method that admits a request if there are less requests of its class in flight than the limit
+     *
+     * @param operation Class of the request
+     * @return True if the request is admitted and release() must be called after it, else False
+     */
+    public boolean tryAcquire(Operation operation) {
+        if (!enabled) {
+            return true;
+        }
+        Limiter limiter = limiters.get(operation);
+        while (true) {
+            int inflight = limiter.inflight.get();
+            if (inflight >= (int) limiter.limit) {
+                limiter.rejected.increment();
+                return false;
+            }
+            if (limiter.inflight.compareAndSet(inflight, inflight + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Method that releases an admitted request and adapts the limit to its latency
+     *
+     * @param operation Class of the request
+     * @param latency Time in ns the request took
+     */
+    public void release(Operation operation, long latency) {
+        if (!enabled) {
+            return;
+        }
+        Limiter limiter = limiters.get(operation);
+        int inflight = limiter.inflight.getAndDecrement();
+        limiter.onSample(latency, inflight);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double getLimit(Operation operation) {
+        return limiters.get(operation).getLimit();
+    }
+
+    public int getInflight(Operation operation) {
+        return limiters.get(operation).inflight.get();
+    }
+
+    public double getRejected(Operation operation) {
+        return limiters.get(operation).rejected.count();
+    }
+
+    private static class Limiter {
+        private static final double SMOOTHING = 0.2;
+        private static final double TOLERANCE = 1.5;
+        private static final int WARMUP = 10;
+        private final int minLimit;
+        private final int maxLimit;
+        private final boolean adaptive;
+        private final AtomicInteger inflight = new AtomicInteger();
+        private volatile double limit;
+        private double longLatency;
+        private long samples;
+        private Counter rejected;
+
+        private Limiter(int limit, int maxLimit, boolean adaptive) {
+            this.limit = Math.max(1, limit);
+            this.minLimit = Math.max(1, Math.min(limit, 4));
+            this.maxLimit = Math.max((int) this.limit, maxLimit);
+            this.adaptive = adaptive;
+        }
+
+        /**
+         * Method that compares the latency with its long-term average and moves the limit
+         *
+         * @param latency Time in ns the request took
+         * @param inflight Number of requests in flight when the request finished, including it
+         */
+        private synchronized void onSample(long latency, int inflight) {
+            if (!adaptive) {
+                return;
+            }
+            samples++;
+            longLatency = samples == 1 ? latency : longLatency + (latency - longLatency) / Math.min(samples, 600);
+            if (samples < WARMUP) {
+                return;
+            }
+            //Latency of a load that doesn't even reach half of the limit says nothing about the limit
+            if (inflight < limit / 2) {
+                return;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longLatency / latency));
+            double newLimit = limit * gradient + Math.sqrt(limit);
+            newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+            limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        }
+
+        private double getLimit() {
+            return limit;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.Roclh.Infotecs.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Top-K tracker of the most accessed keys based on the Space-Saving algorithm.
+ * Only every sampleRate-th access is counted on average, counts are scaled back in the report.
+ */
+@Service
+public class HotKeyService {
+    public enum Operation {GET, SET}
+
+    private static final Comparator<Counter> ORDER = Comparator.comparingLong((Counter counter) -> counter.count)
+            .thenComparing(counter -> counter.id);
+    private final boolean enabled;
+    private final int capacity;
+    private final int sampleRate;
+    private final long window;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> ordered = new TreeSet<>(ORDER);
+    private long windowStart = System.currentTimeMillis();
+
+    /**
+     * Main constructor of the HotKeyService object
+     *
+     * @param enabled True if accesses should be tracked
+     * @param capacity Number of keys that are tracked at the same time
+     * @param sampleRate Only one of sampleRate accesses is counted
+     * @param window Time in ms after which counters are reset
+     */
+    public HotKeyService(@Value("${keyvalue.hotkeys.enabled:false}") boolean enabled,
+                         @Value("${keyvalue.hotkeys.capacity:100}") int capacity,
+                         @Value("${keyvalue.hotkeys.sample-rate:16}") int sampleRate,
+                         @Value("${keyvalue.hotkeys.window:60000}") long window) {
+        this.enabled = enabled;
+        this.capacity = Math.max(1, capacity);
+        this.sampleRate = Math.max(1, sampleRate);
+        this.window = window;
+    }
+
+    /**
+     * Method that counts an access to the key if it gets into the sample,
+     * the same key in different namespaces is counted separately
+     *
+     * @param namespace Name of the namespace of the key
+     * @param key Accessed key
+     * @param operation Type of the access
+     */
+    public void record(String namespace, String key, Operation operation) {
+        if (!enabled || key == null) {
+            return;
+        }
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        //Namespace names can't contain '/', so the id is unique
+        String id = namespace + "/" + key;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (now - windowStart >= window) {
+                counters.clear();
+                ordered.clear();
+                windowStart = now;
+            }
+            Counter counter = counters.get(id);
+            if (counter == null) {
+                if (counters.size() < capacity) {
+                    counter = new Counter(id, namespace, key, 0);
+                } else {
+                    //Replacing the least accessed key, its count becomes the error of the new one
+                    Counter evicted = ordered.pollFirst();
+                    counters.remove(evicted.id);
+                    counter = new Counter(id, namespace, key, evicted.count);
+                }
+                counters.put(id, counter);
+            } else {
+                ordered.remove(counter);
+            }
+            counter.count++;
+            if (operation == Operation.GET) {
+                counter.gets++;
+            } else {
+                counter.sets++;
+            }
+            ordered.add(counter);
+        }
+    }
+
+    /**
+     * Method that returns the most accessed keys of the current window
+     *
+     * @param limit Maximum number of returned keys
+     * @return keys from the most to the least accessed with their estimated counts and rates per second
+     */
+    public synchronized List<Map<String, Object>> top(int limit) {
+        double seconds = Math.max(1, System.currentTimeMillis() - windowStart) / 1000.0;
+        List<Map<String, Object>> top = new ArrayList<>();
+        for (Counter counter : ordered.descendingSet()) {
+            if (top.size() >= limit) {
+                break;
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("namespace", counter.namespace);
+            entry.put("key", counter.key);
+            entry.put("count", counter.count * sampleRate);
+            entry.put("error", counter.error * sampleRate);
+            entry.put("gets", counter.gets * sampleRate);
+            entry.put("sets", counter.sets * sampleRate);
+            entry.put("ratePerSecond", counter.count * sampleRate / seconds);
+            top.add(entry);
+        }
+        return top;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public synchronized long getWindowStart() {
+        return windowStart;
+    }
+
+    private static class Counter {
+        private final String id;
+        private final String namespace;
+        private final String key;
+        private final long error;
+        private long count;
+        private long gets;
+        private long sets;
+
+        private Counter(String id, String namespace, String key, long error) {
+            this.id = id;
+            this.namespace = namespace;
+            this.key = key;
+            this.error = error;
+            this.count = error;
+        }
+    }
+}
@@ -1,29 +1,76 @@
 package com.Roclh.Infotecs.service;
 
 import com.Roclh.Infotecs.wrappers.KeyValue;
-import org.springframework.stereotype.Service;
 
 import javax.xml.bind.ValidationException;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
-@Service
+/**
+ * Memory of one namespace, instances are created by NamespaceService
+ */
 public class KeyValueService {
-    private final long defaultTtl = KeyValue.getDefaultTtl();
-    private final CopyOnWriteArrayList<KeyValue> keyValues = new CopyOnWriteArrayList<>();
+    private static final long ENTRY_OVERHEAD = 64;
+    //Oldest removed keys are forgotten over this number, so deletions don't grow the memory
+    static final int MAX_REMOVED_KEYS = 100000;
+    private static final Comparator<KeyValue> EXPIRY_ORDER = Comparator.comparingLong(KeyValue::getDeathTime)
+            .thenComparingLong(KeyValue::getVersion);
+    private final long defaultTtl;
+    private final long maxEntries;
+    private final long maxMemory;
+    private final String dumpName;
+    private final String deltaPattern;
+    private final ConcurrentSkipListMap<String, KeyValue> keyValues = new ConcurrentSkipListMap<>();
+    private final TreeSet<KeyValue> expiry = new TreeSet<>(EXPIRY_ORDER);
+    private final ConcurrentSkipListMap<Long, String> versions = new ConcurrentSkipListMap<>();
+    private volatile int entries;
+    private volatile long memory;
+    private final AtomicLong rejected = new AtomicLong();
+    private final Map<String, Long> removedKeys = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, String> removals = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile long checkpoint;
+    //True once dump.txt and deltas on disk describe this memory, so new deltas can be appended to them
+    private volatile boolean based;
+    //End of the chain on disk, loaded keyValues take new versions, so after load() it's behind the checkpoint
+    private volatile long chained;
+    private volatile long forgotten;
+    private final long epoch = System.currentTimeMillis();
 
     public KeyValueService() {
+        this("dump", KeyValue.getDefaultTtl(), 0, 0);
     }
 
     /**
-     * Method that check the existence of a KeyValue with specified key
+     * Main constructor of the KeyValueService object
      *
-     * @param key Key of the KeyValue
-     * @return True if exists, false if not
+     * @param dumpName Name of the dump file without extension, delta files are named after it too
+     * @param defaultTtl Time of existence of keyValues set without ttl
+     * @param maxEntries Maximum number of keyValues, 0 means unlimited
+     * @param maxMemory Maximum estimated size of keys and values in bytes, 0 means unlimited
      */
-    private boolean checkKey(String key) {
-        return this.keyValues.stream().anyMatch(keyValue -> keyValue.getKey().equals(key));
+    public KeyValueService(String dumpName, long defaultTtl, long maxEntries, long maxMemory) {
+        this.dumpName = dumpName;
+        this.deltaPattern = Pattern.quote(dumpName) + "\\.(\\d+)-(\\d+)\\.delta";
+        this.defaultTtl = defaultTtl;
+        this.maxEntries = maxEntries;
+        this.maxMemory = maxMemory;
+        //Versions continue after deltas left by previous processes, so new deltas are never ordered before them
+        for (File delta : getDeltas()) {
+            sequence.set(Math.max(sequence.get(), getDeltaEnd(delta)));
+        }
     }
 
     /**
@@ -34,11 +81,11 @@ public class KeyValueService {
      * @throws ValidationException when there is no such key in values
      */
     public KeyValue get(String key) throws ValidationException {
-        if (checkKey(key)) {
-            return keyValues.stream().filter(keyValue -> keyValue.getKey().equals(key)).findFirst().get();
-        } else {
+        KeyValue keyValue = key == null ? null : keyValues.get(key);
+        if (keyValue == null) {
             throw new ValidationException("There is no such key in values");
         }
+        return keyValue;
     }
 
     /**
@@ -61,28 +108,119 @@ public class KeyValueService {
      * @return True if it's added or edited, false if not
      */
     public boolean set(String key, String value, long ttl) {
-        if(ttl<=0||key == null|| value == null || key.equals("")){
+        if (value == null) {
+            return false;
+        }
+        return set(new KeyValue(key, value, ttl), ttl);
+    }
+
+    /**
+     * Method that creates new or change already existed keyValue in memory with raw bytes,
+     * the array is stored without copying
+     *
+     * @param key Specified key of a new or already existed KeyValue
+     * @param value Specified raw bytes of a new or already existed KeyValue
+     * @param ttl Specified time of existence of a new or already existed KeyValue
+     * @return True if it's added or edited, false if not
+     */
+    public boolean set(String key, byte[] value, long ttl) {
+        if (value == null) {
+            return false;
+        }
+        return set(new KeyValue(key, value, ttl), ttl);
+    }
+
+    /**
+     * Method that creates new or change already existed keyValue in memory
+     *
+     * @param keyValue a keyValue with the key and the value that needed to be set
+     * @param ttl Specified time of existence of a new or already existed KeyValue
+     * @return True if it's added or edited, false if not or if it doesn't fit into the quota
+     */
+    private synchronized boolean set(KeyValue keyValue, long ttl) {
+        String key = keyValue.getKey();
+        if(ttl<=0||key == null|| keyValue.getBytes() == null || key.equals("")){
             return false;
         }
-        if (checkKey(key)) {
-            keyValues.stream().filter(keyValue -> keyValue.getKey().equals(key)).findFirst().get().setValue(value);
-            keyValues.stream().filter(keyValue -> keyValue.getKey().equals(key)).findFirst().get().setDeathTime(ttl);
+        KeyValue existing = keyValues.get(key);
+        if (existing != null) {
+            long grown = getWeight(keyValue) - getWeight(existing);
+            if (maxMemory > 0 && grown > 0 && memory + grown > maxMemory) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            //The existing keyValue is replaced, not changed, so readers never get a new version with an old value
+            keyValue.setDeathTime(ttl);
+            keyValue.setVersion(sequence.incrementAndGet());
+            keyValues.put(key, keyValue);
+            versions.remove(existing.getVersion());
+            versions.put(keyValue.getVersion(), key);
+            expiry.remove(existing);
+            expiry.add(keyValue);
+            memory += grown;
             return true;
         } else {
-            return add(key, value, ttl);
+            if ((maxEntries > 0 && entries >= maxEntries) || (maxMemory > 0 && memory + getWeight(keyValue) > maxMemory)) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            return add(keyValue);
         }
     }
 
     /**
      * Method that creates new keyValue in memory
      *
-     * @param key Specified key of a new KeyValue
-     * @param value Specified value of a new KeyValue
-     * @param ttl Specified time of existence of a new KeyValue
+     * @param keyValue a new KeyValue
      * @return True if it's added, false if not
      */
-    private boolean add(String key, String value, long ttl) {
-        return this.keyValues.add(new KeyValue(key, value, ttl));
+    private boolean add(KeyValue keyValue) {
+        keyValue.setVersion(sequence.incrementAndGet());
+        Long removed = removedKeys.remove(keyValue.getKey());
+        if (removed != null) {
+            removals.remove(removed);
+        }
+        keyValues.put(keyValue.getKey(), keyValue);
+        versions.put(keyValue.getVersion(), keyValue.getKey());
+        expiry.add(keyValue);
+        entries++;
+        memory += getWeight(keyValue);
+        return true;
+    }
+
+    /**
+     * Method that removes keyValue with specified key from memory and from the expiry order
+     *
+     * @param key Specified key of a KeyValue
+     * @return removed KeyValue or null if there is no such key
+     */
+    private synchronized KeyValue delete(String key) {
+        KeyValue keyValue = key == null ? null : keyValues.remove(key);
+        if (keyValue != null) {
+            expiry.remove(keyValue);
+            versions.remove(keyValue.getVersion());
+            entries--;
+            memory -= getWeight(keyValue);
+            long removed = sequence.incrementAndGet();
+            removedKeys.put(key, removed);
+            removals.put(removed, key);
+            while (removedKeys.size() > MAX_REMOVED_KEYS) {
+                Map.Entry<Long, String> oldest = removals.pollFirstEntry();
+                removedKeys.remove(oldest.getValue(), oldest.getKey());
+                forgotten = Math.max(forgotten, oldest.getKey());
+            }
+        }
+        return keyValue;
+    }
+
+    /**
+     * Method that estimates memory taken by the keyValue
+     *
+     * @param keyValue keyValue with the key and the value
+     * @return estimated size in bytes
+     */
+    private static long getWeight(KeyValue keyValue) {
+        return ENTRY_OVERHEAD + keyValue.getKey().length() * 2L + keyValue.getBytes().length;
     }
 
     /**
@@ -92,7 +230,26 @@ public class KeyValueService {
      * @return True if it's added, false if not
      */
     private boolean set(KeyValue keyValue) {
-        return this.set(keyValue.getKey(), keyValue.getValue(), keyValue.getRemainingLifespan());
+        return this.set(keyValue, keyValue.getRemainingLifespan());
+    }
+
+    /**
+     * Method that creates new or changes already existed keyValues in memory under one lock,
+     * removed keys of delta files are deleted
+     *
+     * @param loaded keyValues read from a dump, a delta or a snapshot
+     * @return number of keyValues that were added or edited
+     */
+    public synchronized int setAll(List<KeyValue> loaded) {
+        int count = 0;
+        for (KeyValue keyValue : loaded) {
+            if (keyValue.isRemoved()) {
+                delete(keyValue.getKey());
+            } else if (this.set(keyValue)) {
+                count++;
+            }
+        }
+        return count;
     }
 
     /**
@@ -103,58 +260,316 @@ public class KeyValueService {
      * @throws ValidationException if there is no such key in values
      */
     public String remove(String key) throws ValidationException {
-        if (checkKey(key)) {
-            String value = keyValues.stream().filter(keyValue -> keyValue.getKey().equals(key)).findFirst().get().getValue();
-            keyValues.removeIf(keyValue -> keyValue.getKey().equals(key));
-            return value;
-        } else {
+        KeyValue keyValue = delete(key);
+        if (keyValue == null) {
             throw new ValidationException("There is no such key in values");
         }
+        return keyValue.getValue();
     }
 
     /**
-     * Method that dumps existing memory in the dump.txt file
+     * Method that dumps existing memory in the dump.txt file, or {dumpName}.txt for namespaces
      *
      * @return Json String with all keyValues in it
      * @throws ValidationException if it impossible to create a new file
      */
     public String dump() throws ValidationException {
-        File file = new File("dump.txt");
+        File file = getDumpFile();
+        //Taken under the lock, so every change up to the checkpoint is already in the memory that is dumped
+        long dumped = getSequence();
         try {
+            String response;
             if (file.exists()) {
-                return getValues(file);
+                response = getValues(file);
             } else {
                 if (file.createNewFile()) {
-                    return getValues(file);
+                    response = getValues(file);
                 } else {
                     throw new IOException("Unable to create file");
                 }
             }
+            //The new base snapshot makes previous deltas obsolete, removed keys are still kept for change polls
+            for (File delta : getDeltas()) {
+                delta.delete();
+            }
+            checkpoint = dumped;
+            chained = dumped;
+            based = true;
+            return response;
         } catch (IOException e) {
             throw new ValidationException(e.getMessage());
         }
     }
 
     /**
-     * Method that loads into existing memory the dump.txt file
+     * Method that dumps keyValues changed or removed since the last dump
      *
-     * @return true if it succeeded, else false
-     * @throws FileNotFoundException if there hasn't been any dump yet
+     * @return Json String with all changed keyValues and removed keys in it
+     * @throws ValidationException if it impossible to create a new file
      */
-    public boolean load() throws FileNotFoundException {
-        File file = new File("dump.txt");
-        if (file.exists()) {
-            Scanner scanner = new Scanner(file);
-            while (scanner.hasNextLine()) {
-                this.set(new KeyValue(scanner.nextLine()));
+    public String dumpDelta() throws ValidationException {
+        return dumpDelta(checkpoint);
+    }
+
+    /**
+     * Method that dumps keyValues changed or removed since specified checkpoint
+     * into the dump.{since}-{current}.delta file, which is applied by load() after dump.txt
+     *
+     * @param since Checkpoint returned by getCheckpoint()
+     * @return Json String with all changed keyValues and removed keys in it
+     * @throws ValidationException if it impossible to create a new file, the checkpoint is ahead of the last dump
+     * or neither dump() nor load() was called yet
+     */
+    public String dumpDelta(long since) throws ValidationException {
+        //Deltas of a memory that wasn't dumped or loaded don't continue the chain on disk
+        if (!based) {
+            throw new ValidationException("Delta can't be dumped before dump or load");
+        }
+        //A delta starting after the last dump would leave a gap in the chain applied by load()
+        if (since > checkpoint) {
+            throw new ValidationException("Delta should start at or before the checkpoint " + checkpoint);
+        }
+        long dumped = getSequence();
+        String response = getChanges(since);
+        //Memory at the checkpoint is the same as the chain at its end, so the delta continues the chain from there
+        long start = Math.min(since, chained);
+        File file = new File(getDumpDirectory(), dumpName + "." + start + "-" + dumped + ".delta");
+        try {
+            write(file, response);
+        } catch (IOException e) {
+            throw new ValidationException(e.getMessage());
+        }
+        checkpoint = Math.max(checkpoint, dumped);
+        chained = Math.max(chained, dumped);
+        return response;
+    }
+
+    /**
+     * Method that finds keyValues changed or removed since specified version
+     *
+     * @param since Version returned by getSequence() at the time of the previous request, 0 for all values
+     * @return Json String with all changed keyValues and removed keys in the delta dump format
+     * @throws ValidationException if removed keys since that version were already forgotten because there were too many of them
+     */
+    public String getChanges(long since) throws ValidationException {
+        if (since > 0 && since < forgotten) {
+            throw new ValidationException("Changes since " + since + " are no longer tracked, get all values since " + forgotten);
+        }
+        StringBuilder response = new StringBuilder();
+        //Only the keys changed after the version are visited, not the whole memory
+        for (Map.Entry<Long, String> changed : versions.tailMap(since, false).entrySet()) {
+            KeyValue keyValue = keyValues.get(changed.getValue());
+            if (keyValue != null && keyValue.getVersion() == changed.getKey()) {
+                response.append(keyValue.toString()).append("\r\n");
             }
-            scanner.close();
+        }
+        for (String key : removals.tailMap(since, false).values()) {
+            response.append(KeyValue.tombstone(key)).append("\r\n");
+        }
+        return response.toString();
+    }
+
+    /**
+     * Method that creates an entity tag of the keyValue from its version, so a client can skip
+     * unchanged values. Tags are different after restart because versions start over
+     *
+     * @param keyValue keyValue from the memory
+     * @return quoted entity tag
+     */
+    public String getETag(KeyValue keyValue) {
+        return "\"" + Long.toHexString(epoch) + "-" + keyValue.getVersion() + "\"";
+    }
+
+    /**
+     * Method that returns the mutation sequence number covered by the last dump
+     *
+     * @return checkpoint of the last dump or delta dump
+     */
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Method that returns the number of mutations made in the memory so far. It's read under the lock of
+     * mutations, so every version up to the returned one is already in the memory and in getChanges()
+     *
+     * @return current mutation sequence number
+     */
+    public synchronized long getSequence() {
+        return sequence.get();
+    }
+
+    /**
+     * Method that writes all keyValues in the dump format without building a response
+     *
+     * @param writer Writer where keyValues are written one per line
+     * @return number of written keyValues
+     * @throws IOException if it impossible to write
+     */
+    public long writeValues(Writer writer) throws IOException {
+        long count = 0;
+        for (KeyValue keyValue : keyValues.values()) {
+            writer.write(keyValue.toString());
+            writer.write("\r\n");
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Method that loads into existing memory specified dump or snapshot file
+     *
+     * @param file file created by dump() or by snapshots
+     * @return true if it succeeded, false if there is no such file
+     * @throws FileNotFoundException if the file disappeared while loading
+     */
+    public boolean load(File file) throws FileNotFoundException {
+        if (file.exists()) {
+            apply(file);
             return true;
         } else {
             return false;
         }
     }
 
+    /**
+     * Method that loads into existing memory the dump.txt file
+     *
+     * @return true if it succeeded, else false
+     * @throws FileNotFoundException if there hasn't been any dump yet
+     * @throws ValidationException if there is a gap between delta files, nothing is loaded then
+     */
+    public boolean load() throws FileNotFoundException, ValidationException {
+        List<File> chain = getDumpChain();
+        if (chain.isEmpty()) {
+            return false;
+        }
+        for (File file : chain) {
+            apply(file);
+        }
+        restoreSequence(chain);
+        return true;
+    }
+
+    /**
+     * Method that continues numbering of mutations after a loaded snapshot. Snapshot isn't a part of
+     * the chain on disk, so deltas still can't be dumped until dump()
+     *
+     * @param loaded sequence of the memory when the snapshot was taken
+     */
+    public void restoreSequence(long loaded) {
+        long current = sequence.get();
+        while (current < loaded && !sequence.compareAndSet(current, loaded)) {
+            current = sequence.get();
+        }
+    }
+
+    /**
+     * Method that deletes dump.txt and its delta files, so a dropped namespace doesn't leave them on disk
+     */
+    public void deleteDumps() {
+        getDumpFile().delete();
+        for (File delta : getDeltas()) {
+            delta.delete();
+        }
+    }
+
+    /**
+     * Method that finds dump.txt and its delta files in the order they should be applied
+     *
+     * @return dump.txt followed by its deltas, empty if there hasn't been any dump yet
+     * @throws ValidationException if there is a gap between delta files
+     */
+    public List<File> getDumpChain() throws ValidationException {
+        File file = getDumpFile();
+        List<File> chain = new ArrayList<>();
+        if (!file.exists()) {
+            return chain;
+        }
+        chain.add(file);
+        File[] deltas = getDeltas();
+        for (int i = 0; i < deltas.length; i++) {
+            if (i > 0 && getDeltaStart(deltas[i]) > getDeltaEnd(deltas[i - 1])) {
+                throw new ValidationException("Changes between " + getDeltaEnd(deltas[i - 1]) + " and "
+                        + getDeltaStart(deltas[i]) + " are missing in delta files");
+            }
+            chain.add(deltas[i]);
+        }
+        return chain;
+    }
+
+    /**
+     * Method that continues numbering of mutations after the loaded chain,
+     * so that next deltas are applied after the loaded ones
+     *
+     * @param chain files returned by getDumpChain() that were loaded
+     */
+    public void restoreSequence(List<File> chain) {
+        long loaded = 0;
+        for (File file : chain) {
+            if (file.getName().matches(deltaPattern)) {
+                loaded = Math.max(loaded, getDeltaEnd(file));
+            }
+        }
+        restoreSequence(loaded);
+        checkpoint = sequence.get();
+        chained = loaded;
+        based = true;
+    }
+
+    /**
+     * Submethod for load() that applies a dump or a delta file to the memory
+     *
+     * @param file json file from where it takes new values and removed keys
+     * @throws FileNotFoundException if the file doesn't exist
+     */
+    private void apply(File file) throws FileNotFoundException {
+        Scanner scanner = new Scanner(file);
+        while (scanner.hasNextLine()) {
+            String line = scanner.nextLine();
+            if (line.isEmpty()) {
+                continue;
+            }
+            KeyValue keyValue = new KeyValue(line);
+            if (keyValue.isRemoved()) {
+                delete(keyValue.getKey());
+            } else {
+                this.set(keyValue);
+            }
+        }
+        scanner.close();
+    }
+
+    /**
+     * Submethod that finds the delta files next to dump.txt ordered by their checkpoints
+     *
+     * @return delta files in the order they should be applied
+     */
+    private File[] getDeltas() {
+        File[] deltas = getDumpDirectory().listFiles((dir, name) -> name.matches(deltaPattern));
+        if (deltas == null) {
+            return new File[0];
+        }
+        Arrays.sort(deltas, Comparator.comparingLong(this::getDeltaEnd).thenComparingLong(this::getDeltaStart));
+        return deltas;
+    }
+
+    private long getDeltaStart(File delta) {
+        return Long.parseLong(delta.getName().replaceAll(deltaPattern, "$1"));
+    }
+
+    private long getDeltaEnd(File delta) {
+        return Long.parseLong(delta.getName().replaceAll(deltaPattern, "$2"));
+    }
+
+    private File getDumpFile() {
+        return new File(dumpName + ".txt");
+    }
+
+    private File getDumpDirectory() {
+        return getDumpFile().getAbsoluteFile().getParentFile();
+    }
+
     /**
      * Submethod for load() that get values from file
      *
@@ -164,30 +579,72 @@ public class KeyValueService {
      */
     private String getValues(File file) throws IOException {
         StringBuilder response = new StringBuilder();
-        FileWriter fileWriter = new FileWriter(file, false);
-        for (KeyValue keyValue : keyValues) {
-            fileWriter.write(keyValue.toString() + "\r\n");
+        for (KeyValue keyValue : keyValues.values()) {
             response.append(keyValue.toString() + "\r\n");
         }
-        fileWriter.flush();
+        write(file, response.toString());
         return response.toString();
     }
 
     /**
-     * Method that checks all the existing values if they needed to be existing
-     * if they're not - removes them.
+     * Submethod that replaces the content of a dump or a delta file
+     *
+     * @param file file that is going to be replaced
+     * @param content new content of the file
+     * @throws IOException if it impossible to write a file
      */
-    public void checkTime() {
-        keyValues.removeIf(keyValue -> {
-            if (keyValue.checkTime()) {
-                System.out.println("Removing value with key: " + keyValue.getKey());
-            }
-            return keyValue.checkTime();
-        });
+    private void write(File file, String content) throws IOException {
+        //Writing to a temporary file first, so a crash in the middle doesn't leave a broken file
+        File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try (FileWriter fileWriter = new FileWriter(temp, false)) {
+            fileWriter.write(content);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
 
+    /**
+     * Method that removes values which are not needed to be existing anymore.
+     * Values are ordered by their death time, so only the extinct ones are checked
+     */
+    public synchronized void checkTime() {
+        while (!expiry.isEmpty() && expiry.first().checkTime()) {
+            KeyValue keyValue = expiry.pollFirst();
+            System.out.println("Removing value with key: " + keyValue.getKey());
+            delete(keyValue.getKey());
+        }
     }
 
     public int size(){
-        return keyValues.size();
+        return entries;
+    }
+
+    public long getDefaultTtl() {
+        return defaultTtl;
+    }
+
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * Method that returns estimated memory taken by keys and values
+     *
+     * @return estimated size in bytes
+     */
+    public long getMemory() {
+        return memory;
+    }
+
+    /**
+     * Method that returns the number of sets rejected because of the quota
+     *
+     * @return number of rejected sets
+     */
+    public long getRejected() {
+        return rejected.get();
     }
 }
@@ -0,0 +1,191 @@
+package com.Roclh.Infotecs.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.xml.bind.ValidationException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named keyspaces, each of them is a separate KeyValueService with its own map, expiry order,
+ * default ttl and quota, so dropping a namespace doesn't touch its keys one by one.
+ */
+@Service
+public class NamespaceService {
+    public static final String DEFAULT = "default";
+    private static final String NAME_PATTERN = "[A-Za-z0-9_-]{1,64}";
+
+    private final MeterRegistry meterRegistry;
+    private final long defaultTtl;
+    private final long maxEntries;
+    private final long maxMemory;
+    private final int maxCount;
+    private final Map<String, KeyValueService> namespaces = new ConcurrentHashMap<>();
+    private final Map<String, List<Meter>> meters = new ConcurrentHashMap<>();
+
+    /**
+     * Main constructor of the NamespaceService object, the default namespace is saved in dump.txt
+     *
+     * @param meterRegistry registry where size, memory and rejected sets of namespaces are published
+     * @param defaultTtl Default ttl of the default namespace and of namespaces created without it
+     * @param maxEntries Maximum number of keyValues of the default namespace and of namespaces created without it, 0 means unlimited
+     * @param maxMemory Maximum estimated memory of the default namespace and of namespaces created without it, 0 means unlimited
+     * @param maxCount Maximum number of namespaces including the default one
+     */
+    public NamespaceService(MeterRegistry meterRegistry,
+                            @Value("${keyvalue.namespace.default-ttl:10000}") long defaultTtl,
+                            @Value("${keyvalue.namespace.max-entries:0}") long maxEntries,
+                            @Value("${keyvalue.namespace.max-memory:0}") long maxMemory,
+                            @Value("${keyvalue.namespace.max-count:100}") int maxCount) {
+        this.meterRegistry = meterRegistry;
+        this.defaultTtl = defaultTtl;
+        this.maxEntries = maxEntries;
+        this.maxMemory = maxMemory;
+        this.maxCount = maxCount;
+        KeyValueService keyValueService = new KeyValueService("dump", defaultTtl, maxEntries, maxMemory);
+        namespaces.put(DEFAULT, keyValueService);
+        register(DEFAULT, keyValueService);
+    }
+
+    /**
+     * Method that returns the namespace used by requests without a namespace
+     *
+     * @return memory of the default namespace
+     */
+    public KeyValueService getDefault() {
+        return namespaces.get(DEFAULT);
+    }
+
+    /**
+     * Method that finds a namespace by its name
+     *
+     * @param name Name of the namespace, the default namespace if it's empty
+     * @return memory of the namespace
+     * @throws ValidationException if there is no such namespace
+     */
+    public KeyValueService get(Optional<String> name) throws ValidationException {
+        return get(name.orElse(DEFAULT));
+    }
+
+    /**
+     * Method that finds a namespace by its name
+     *
+     * @param name Name of the namespace
+     * @return memory of the namespace
+     * @throws ValidationException if there is no such namespace
+     */
+    public KeyValueService get(String name) throws ValidationException {
+        KeyValueService keyValueService = name == null ? null : namespaces.get(name);
+        if (keyValueService == null) {
+            throw new ValidationException("There is no such namespace");
+        }
+        return keyValueService;
+    }
+
+    /**
+     * Method that creates a new namespace, its dump is saved in dump-{name}.txt
+     *
+     * @param name Name of the namespace, letters, digits, '_' and '-' only
+     * @param ttl Default ttl of the namespace
+     * @param entries Maximum number of keyValues, 0 means unlimited
+     * @param memory Maximum estimated size of keys and values in bytes, 0 means unlimited
+     * @return True if it's created, false if it already exists
+     * @throws ValidationException if the name or the ttl is incorrect or there are too many namespaces
+     */
+    public synchronized boolean create(String name, Optional<Long> ttl, Optional<Long> entries, Optional<Long> memory) throws ValidationException {
+        if (name == null || !name.matches(NAME_PATTERN)) {
+            throw new ValidationException("Namespace name should consist of letters, digits, '_' and '-'");
+        }
+        if (ttl.orElse(defaultTtl) <= 0) {
+            throw new ValidationException("Default ttl of the namespace should be positive");
+        }
+        if (namespaces.containsKey(name)) {
+            return false;
+        }
+        if (namespaces.size() >= maxCount) {
+            throw new ValidationException("There can't be more than " + maxCount + " namespaces");
+        }
+        KeyValueService keyValueService = new KeyValueService("dump-" + name, ttl.orElse(defaultTtl),
+                entries.orElse(maxEntries), memory.orElse(maxMemory));
+        namespaces.put(name, keyValueService);
+        register(name, keyValueService);
+        return true;
+    }
+
+    /**
+     * Method that drops the whole namespace with all its keyValues at once,
+     * its dump-{name}.txt and delta files are deleted too
+     *
+     * @param name Name of the namespace
+     * @return number of dropped keyValues
+     * @throws ValidationException if there is no such namespace or it's the default one
+     */
+    public synchronized int drop(String name) throws ValidationException {
+        if (DEFAULT.equals(name)) {
+            throw new ValidationException("Default namespace can't be dropped");
+        }
+        KeyValueService keyValueService = name == null ? null : namespaces.remove(name);
+        if (keyValueService == null) {
+            throw new ValidationException("There is no such namespace");
+        }
+        List<Meter> dropped = meters.remove(name);
+        if (dropped != null) {
+            dropped.forEach(meterRegistry::remove);
+        }
+        //Files are deleted one by one, the number of keyValues doesn't matter
+        keyValueService.deleteDumps();
+        return keyValueService.size();
+    }
+
+    /**
+     * Method that removes extinct values of all namespaces
+     */
+    public void checkTime() {
+        namespaces.values().forEach(KeyValueService::checkTime);
+    }
+
+    /**
+     * Method that collects settings and usage of all namespaces
+     *
+     * @return stats of namespaces by their names
+     */
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        namespaces.forEach((name, keyValueService) -> {
+            Map<String, Object> namespace = new LinkedHashMap<>();
+            namespace.put("defaultTtl", keyValueService.getDefaultTtl());
+            namespace.put("entries", keyValueService.size());
+            namespace.put("maxEntries", keyValueService.getMaxEntries());
+            namespace.put("memory", keyValueService.getMemory());
+            namespace.put("maxMemory", keyValueService.getMaxMemory());
+            namespace.put("rejected", keyValueService.getRejected());
+            stats.put(name, namespace);
+        });
+        return stats;
+    }
+
+    private void register(String name, KeyValueService keyValueService) {
+        List<Meter> registered = new ArrayList<>();
+        registered.add(Gauge.builder("keyvalue.namespace.entries", keyValueService, KeyValueService::size)
+                .tag("namespace", name)
+                .register(meterRegistry));
+        registered.add(Gauge.builder("keyvalue.namespace.memory", keyValueService, KeyValueService::getMemory)
+                .baseUnit("bytes")
+                .tag("namespace", name)
+                .register(meterRegistry));
+        registered.add(FunctionCounter.builder("keyvalue.namespace.rejected", keyValueService, KeyValueService::getRejected)
+                .description("Sets rejected because of the namespace quota")
+                .tag("namespace", name)
+                .register(meterRegistry));
+        meters.put(name, registered);
+    }
+}
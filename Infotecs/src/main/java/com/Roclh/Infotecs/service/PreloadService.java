@@ -0,0 +1,206 @@
+package com.Roclh.Infotecs.service;
+
+import com.Roclh.Infotecs.wrappers.KeyValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.xml.bind.ValidationException;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+@Service
+public class PreloadService implements ApplicationRunner {
+    public enum State {DISABLED, PENDING, LOADING, LOADED, FAILED}
+
+    private static final int BATCH_SIZE = 10000;
+    private final KeyValueService keyValueService;
+    private final SnapshotService snapshotService;
+    private final boolean enabled;
+    private final int parallelism;
+    private final AtomicLong parsed = new AtomicLong();
+    private volatile State state;
+    private volatile String source;
+    private volatile long total;
+    private volatile long loaded;
+    private volatile long duration;
+    private volatile long startupTime;
+
+    /**
+     * Main constructor of the PreloadService object
+     *
+     * @param namespaceService namespaces whose default one is loaded from the latest snapshot
+     * @param snapshotService service that knows where the latest snapshot is
+     * @param enabled True if the latest snapshot should be loaded during startup
+     * @param parallelism Number of threads that parse the snapshot, 0 means number of processors
+     */
+    public PreloadService(NamespaceService namespaceService, SnapshotService snapshotService,
+                          @Value("${keyvalue.preload.enabled:false}") boolean enabled,
+                          @Value("${keyvalue.preload.parallelism:0}") int parallelism) {
+        this.keyValueService = namespaceService.getDefault();
+        this.snapshotService = snapshotService;
+        this.enabled = enabled;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.state = enabled ? State.PENDING : State.DISABLED;
+    }
+
+    /**
+     * Method that runs the preload after the web server is started, but before
+     * the application reports that it's ready to accept traffic
+     *
+     * @param args application arguments
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            preload();
+        }
+    }
+
+    /**
+     * Method that loads the latest snapshot, or dump.txt with its deltas if they were written after it
+     */
+    public void preload() {
+        state = State.LOADING;
+        long start = System.currentTimeMillis();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            File snapshot = snapshotService.getLatest();
+            List<File> chain = keyValueService.getDumpChain();
+            long dumped = chain.stream().mapToLong(File::lastModified).max().orElse(0);
+            if (snapshot != null && snapshot.lastModified() >= dumped) {
+                source = snapshot.getPath();
+                loaded = load(snapshot, pool);
+                keyValueService.restoreSequence(snapshotService.getSequence(snapshot));
+            } else if (!chain.isEmpty()) {
+                source = chain.get(0).getPath();
+                for (File file : chain) {
+                    load(file, pool);
+                }
+                keyValueService.restoreSequence(chain);
+                loaded = keyValueService.size();
+            } else {
+                source = "nothing";
+            }
+            state = State.LOADED;
+        } catch (IOException | ExecutionException | ValidationException e) {
+            e.printStackTrace();
+            state = State.FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state = State.FAILED;
+        } finally {
+            pool.shutdown();
+        }
+        duration = System.currentTimeMillis() - start;
+        System.out.println("Preloaded " + loaded + " values from " + source + " in " + duration + " ms");
+    }
+
+    /**
+     * Submethod for preload() that reads a snapshot, a dump or a delta in batches,
+     * so only one batch of lines and keyValues is kept in memory at a time
+     *
+     * @param file snapshot, dump or delta file
+     * @param pool threads that parse the lines
+     * @return number of loaded keyValues
+     */
+    private int load(File file, ForkJoinPool pool) throws IOException, ExecutionException, InterruptedException {
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            List<String> lines = new ArrayList<>(BATCH_SIZE);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                total++;
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+                if (lines.size() >= BATCH_SIZE) {
+                    count += apply(lines, pool);
+                    lines.clear();
+                }
+            }
+            count += apply(lines, pool);
+        }
+        return count;
+    }
+
+    /**
+     * Submethod for load() that parses a batch of lines in parallel and applies it in one pass
+     *
+     * @param lines non-empty lines of the file
+     * @param pool threads that parse the lines
+     * @return number of loaded keyValues
+     */
+    private int apply(List<String> lines, ForkJoinPool pool) throws ExecutionException, InterruptedException {
+        if (lines.isEmpty()) {
+            return 0;
+        }
+        List<KeyValue> keyValues = pool.submit(() -> lines.parallelStream()
+                .map(line -> {
+                    KeyValue keyValue = new KeyValue(line);
+                    parsed.incrementAndGet();
+                    return keyValue;
+                })
+                .collect(Collectors.toList())).get();
+        return keyValueService.setAll(keyValues);
+    }
+
+    /**
+     * Method that measures time from the JVM start until the application is ready
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ready() {
+        startupTime = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.out.println("Ready to accept traffic in " + startupTime + " ms");
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getParsed() {
+        return parsed.get();
+    }
+
+    public long getLoaded() {
+        return loaded;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public long getStartupTime() {
+        return startupTime;
+    }
+
+    /**
+     * Method that calculates preload throughput
+     *
+     * @return loaded keyValues per second, 0 if nothing was loaded yet
+     */
+    public long getThroughput() {
+        return duration > 0 ? loaded * 1000 / duration : 0;
+    }
+}
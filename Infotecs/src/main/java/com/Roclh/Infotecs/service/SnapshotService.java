@@ -0,0 +1,188 @@
+package com.Roclh.Infotecs.service;
+
+import com.Roclh.Infotecs.wrappers.ThrottledWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class SnapshotService {
+    //Snapshots are named snapshot-{time}-{sequence}.txt, older ones don't have the sequence
+    private static final String SNAPSHOT_PATTERN = "snapshot-(\\d+)(?:-(\\d+))?\\.txt";
+    private final KeyValueService keyValueService;
+    private final boolean enabled;
+    private final long interval;
+    private final long changes;
+    private final int retain;
+    private final File directory;
+    private final long rateLimit;
+    private ScheduledExecutorService executor;
+    private volatile long lastSequence;
+    private volatile long lastTime = System.currentTimeMillis();
+
+    /**
+     * Main constructor of the SnapshotService object
+     *
+     * @param namespaceService namespaces whose default one is going to be snapshotted
+     * @param enabled True if snapshots should be taken in the background
+     * @param interval Time in ms after which a snapshot is taken if anything changed
+     * @param changes Number of changes after which a snapshot is taken earlier than interval
+     * @param retain Number of the last snapshots that are kept on disk
+     * @param directory Directory where snapshots are stored
+     * @param rateLimit Maximum write rate in chars per second, 0 means unlimited
+     */
+    public SnapshotService(NamespaceService namespaceService,
+                           @Value("${keyvalue.snapshot.enabled:false}") boolean enabled,
+                           @Value("${keyvalue.snapshot.interval:60000}") long interval,
+                           @Value("${keyvalue.snapshot.changes:10000}") long changes,
+                           @Value("${keyvalue.snapshot.retain:3}") int retain,
+                           @Value("${keyvalue.snapshot.directory:snapshots}") String directory,
+                           @Value("${keyvalue.snapshot.rate-limit:10485760}") long rateLimit) {
+        this.keyValueService = namespaceService.getDefault();
+        this.enabled = enabled;
+        this.interval = interval;
+        this.changes = changes;
+        this.retain = Math.max(1, retain);
+        this.directory = new File(directory);
+        this.rateLimit = rateLimit;
+    }
+
+    /**
+     * Method that starts the background thread which checks if a snapshot is needed
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "keyvalue-snapshot");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        long period = Math.max(1, Math.min(interval, 1000));
+        executor.scheduleWithFixedDelay(this::check, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Method that takes a snapshot if the interval is over or there were enough changes
+     */
+    private void check() {
+        long changed = keyValueService.getSequence() - lastSequence;
+        if (changed <= 0) {
+            return;
+        }
+        if (changed >= changes || System.currentTimeMillis() - lastTime >= interval) {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Method that writes the memory to a temporary file and atomically renames it
+     * to snapshot-{time}-{sequence}.txt, then removes snapshots older than the last retained ones
+     *
+     * @return created snapshot file
+     * @throws IOException if it impossible to write or rename the file
+     */
+    public synchronized File snapshot() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+        long sequence = keyValueService.getSequence();
+        long time = System.currentTimeMillis();
+        File file = new File(directory, "snapshot-" + time + "-" + sequence + ".txt");
+        while (file.exists()) {
+            file = new File(directory, "snapshot-" + ++time + "-" + sequence + ".txt");
+        }
+        File temp = new File(directory, file.getName() + ".tmp");
+        try (FileOutputStream outputStream = new FileOutputStream(temp)) {
+            Writer writer = new ThrottledWriter(new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)), rateLimit);
+            keyValueService.writeValues(writer);
+            writer.flush();
+            outputStream.getFD().sync();
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("Snapshot saved: " + file.getPath());
+        lastSequence = sequence;
+        lastTime = time;
+        rotate();
+        return file;
+    }
+
+    /**
+     * Method that finds the latest complete snapshot
+     *
+     * @return latest snapshot file or null if there hasn't been any snapshots yet
+     */
+    public File getLatest() {
+        File[] snapshots = getSnapshots();
+        return snapshots.length == 0 ? null : snapshots[snapshots.length - 1];
+    }
+
+    /**
+     * Method that finds the mutation sequence number of the memory when the snapshot was taken
+     *
+     * @param snapshot snapshot file
+     * @return sequence of the snapshot, 0 if it wasn't saved
+     */
+    public long getSequence(File snapshot) {
+        String sequence = snapshot.getName().replaceAll(SNAPSHOT_PATTERN, "$2");
+        return sequence.isEmpty() ? 0 : Long.parseLong(sequence);
+    }
+
+    /**
+     * Submethod for snapshot() that removes old snapshots and leftover temporary files
+     */
+    private void rotate() {
+        File[] snapshots = getSnapshots();
+        for (int i = 0; i < snapshots.length - retain; i++) {
+            snapshots[i].delete();
+        }
+        File[] temps = directory.listFiles((dir, name) -> name.matches(SNAPSHOT_PATTERN + "\\.tmp"));
+        if (temps != null) {
+            for (File temp : temps) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Submethod that finds complete snapshots ordered by time
+     *
+     * @return snapshots from the oldest to the latest
+     */
+    private File[] getSnapshots() {
+        File[] snapshots = directory.listFiles((dir, name) -> name.matches(SNAPSHOT_PATTERN));
+        if (snapshots == null) {
+            return new File[0];
+        }
+        Arrays.sort(snapshots, Comparator.comparingLong(snapshot -> Long.parseLong(snapshot.getName().replaceAll(SNAPSHOT_PATTERN, "$1"))));
+        return snapshots;
+    }
+}
@@ -1,19 +1,30 @@
 package com.Roclh.Infotecs.wrappers;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @JsonPropertyOrder({"key", "value", "remaininglifespan"})
 public class KeyValue {
     private static final long defaultTtl = 10000;
     private String key;
-    private String value;
+    @JsonIgnore
+    private byte[] value;
+    private boolean binary;
     @JsonIgnore
     private long deathTime;
+    @JsonIgnore
+    private long version;
+    @JsonIgnore
+    private boolean removed;
 
 
     /**
@@ -25,7 +36,20 @@ public class KeyValue {
      */
     public KeyValue(String key, String value, long remainingLifespan) {
         this.key = key;
-        this.value = value;
+        setValue(value);
+        this.deathTime = System.currentTimeMillis() + remainingLifespan;
+    }
+
+    /**
+     * Raw bytes constructor of the KeyValue object, the array is stored without copying
+     *
+     * @param key
+     * @param value Raw bytes of the value
+     * @param remainingLifespan   The time that the object will exist
+     */
+    public KeyValue(String key, byte[] value, long remainingLifespan) {
+        this.key = key;
+        setValue(value);
         this.deathTime = System.currentTimeMillis() + remainingLifespan;
     }
 
@@ -39,8 +63,15 @@ public class KeyValue {
         try {
             Map<String, Object> jsonMap = mapper.readValue(json, new TypeReference<Map<String,Object>>(){});
             this.key = (String)jsonMap.get("key");
-            this.value = (String)jsonMap.get("value");
-            this.deathTime = System.currentTimeMillis()+(Integer)jsonMap.get("remainingLifespan");
+            String value = (String)jsonMap.get("value");
+            if (Boolean.TRUE.equals(jsonMap.get("binary"))) {
+                setValue(Base64.getDecoder().decode(value));
+            } else {
+                setValue(value);
+            }
+            Number remainingLifespan = (Number) jsonMap.get("remainingLifespan");
+            this.deathTime = System.currentTimeMillis() + (remainingLifespan == null ? 0 : remainingLifespan.longValue());
+            this.removed = Boolean.TRUE.equals(jsonMap.get("removed"));
         } catch (JsonProcessingException e) {
             e.printStackTrace();
         }
@@ -76,12 +107,52 @@ public class KeyValue {
         this.key = key;
     }
 
+    @JsonIgnore
     public String getValue() {
-        return value;
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
     }
 
     public void setValue(String value) {
+        this.value = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        this.binary = false;
+    }
+
+    /**
+     * Method that returns stored bytes of the value without copying
+     *
+     * @return raw bytes of the value
+     */
+    @JsonIgnore
+    public byte[] getBytes() {
+        return value;
+    }
+
+    /**
+     * Method that sets raw bytes of the value without copying
+     *
+     * @param value raw bytes of the value
+     */
+    public void setValue(byte[] value) {
         this.value = value;
+        this.binary = true;
+    }
+
+    /**
+     * Method that shows if the value was set as raw bytes, such values are dumped in Base64
+     *
+     * @return True if the value is raw bytes, else False
+     */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isBinary() {
+        return binary;
+    }
+
+    @JsonProperty("value")
+    private String getDumpValue() {
+        if (binary && value != null) {
+            return Base64.getEncoder().encodeToString(value);
+        }
+        return getValue();
     }
 
     public long getDeathTime() {
@@ -96,6 +167,41 @@ public class KeyValue {
         this.deathTime = System.currentTimeMillis() + defaultTtl;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Method that shows if this object is a deletion record read from a delta dump
+     *
+     * @return True if the key was removed, else False
+     */
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    /**
+     * Method that creates a deletion record for delta dumps
+     *
+     * @param key Key of the removed KeyValue
+     * @return JSON-formatted String that marks the key as removed
+     */
+    public static String tombstone(String key) {
+        Map<String, Object> jsonMap = new LinkedHashMap<>();
+        jsonMap.put("key", key);
+        jsonMap.put("removed", true);
+        try {
+            return new ObjectMapper().writeValueAsString(jsonMap);
+        } catch (JsonProcessingException e) {
+            e.printStackTrace();
+            return "";
+        }
+    }
+
     public static long getDefaultTtl() {
         return defaultTtl;
     }
@@ -0,0 +1,77 @@
+package com.Roclh.Infotecs.wrappers;
+
+import javax.xml.bind.ValidationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RawBodyReader {
+    private static final int CHUNK_SIZE = 65536;
+    private final int maxSize;
+
+    /**
+     * Main constructor of the RawBodyReader object
+     *
+     * @param maxSize Maximum size of a body in bytes
+     */
+    public RawBodyReader(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Method that reads the body straight into the array that is going to be stored.
+     * With known Content-Length, which is checked against the limit first, the array is allocated once.
+     * Otherwise the body is read into chunks which are allocated only as bytes arrive, and the value
+     * is assembled from them once the body is complete
+     *
+     * @param inputStream body of the request
+     * @param length Content-Length of the request, -1 if it's unknown
+     * @return bytes of the body
+     * @throws ValidationException if the body is larger than the maximum size or incomplete
+     * @throws IOException if it's impossible to read the body
+     */
+    public byte[] read(InputStream inputStream, long length) throws ValidationException, IOException {
+        if (length > maxSize) {
+            throw new ValidationException("Value is larger than " + maxSize + " bytes");
+        }
+        if (length >= 0) {
+            byte[] value = new byte[(int) length];
+            int position = 0;
+            while (position < value.length) {
+                int read = inputStream.read(value, position, value.length - position);
+                if (read < 0) {
+                    throw new ValidationException("Request body is shorter than its Content-Length");
+                }
+                position += read;
+            }
+            return value;
+        }
+        List<ByteBuffer> chunks = new ArrayList<>();
+        ByteBuffer chunk = null;
+        long total = 0;
+        while (true) {
+            if (chunk == null || !chunk.hasRemaining()) {
+                chunk = ByteBuffer.allocate(CHUNK_SIZE);
+                chunks.add(chunk);
+            }
+            int read = inputStream.read(chunk.array(), chunk.position(), chunk.remaining());
+            if (read < 0) {
+                break;
+            }
+            chunk.position(chunk.position() + read);
+            total += read;
+            if (total > maxSize) {
+                throw new ValidationException("Value is larger than " + maxSize + " bytes");
+            }
+        }
+        byte[] value = new byte[(int) total];
+        int position = 0;
+        for (ByteBuffer filled : chunks) {
+            System.arraycopy(filled.array(), 0, value, position, filled.position());
+            position += filled.position();
+        }
+        return value;
+    }
+}
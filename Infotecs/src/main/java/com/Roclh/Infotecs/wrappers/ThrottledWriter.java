@@ -0,0 +1,64 @@
+package com.Roclh.Infotecs.wrappers;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+
+public class ThrottledWriter extends FilterWriter {
+    private final long charsPerSecond;
+    private final long startTime = System.nanoTime();
+    private long written;
+
+    /**
+     * Main constructor of the ThrottledWriter object
+     *
+     * @param out Writer that receives all the chars
+     * @param charsPerSecond Maximum average write rate, 0 or less means unlimited
+     */
+    public ThrottledWriter(Writer out, long charsPerSecond) {
+        super(out);
+        this.charsPerSecond = charsPerSecond;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        throttle(1);
+        super.write(c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        throttle(len);
+        super.write(cbuf, off, len);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        throttle(len);
+        super.write(str, off, len);
+    }
+
+    /**
+     * Method that sleeps until writing of the next chars fits into the rate
+     *
+     * @param len Number of chars that are going to be written
+     * @throws InterruptedIOException if the thread was interrupted while waiting
+     */
+    private void throttle(int len) throws InterruptedIOException {
+        if (charsPerSecond <= 0) {
+            return;
+        }
+        written += len;
+        long expectedNanos = written * 1_000_000_000L / charsPerSecond;
+        long sleepMillis = (expectedNanos - (System.nanoTime() - startTime)) / 1_000_000L;
+        if (sleepMillis > 0) {
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(e.getMessage());
+            }
+        }
+    }
+}
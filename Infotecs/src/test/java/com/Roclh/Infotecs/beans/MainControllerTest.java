@@ -0,0 +1,105 @@
+package com.Roclh.Infotecs.beans;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MainControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void rawRoundTripTest() throws Exception {
+        //Bytes that are not valid UTF-8 should be returned as they were sent
+        byte[] value = {0, -1, 2, -3};
+        mockMvc.perform(put("/main/raw/get").contentType(MediaType.APPLICATION_OCTET_STREAM).content(value))
+                .andExpect(status().isOk())
+                .andExpect(content().string("true"));
+        mockMvc.perform(get("/main/raw/get"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(content().bytes(value));
+    }
+
+    @Test
+    void getNotModifiedTest() throws Exception {
+        mockMvc.perform(post("/main/set").param("key", "ETagKey").param("value", "ETagValue"))
+                .andExpect(status().isOk());
+        String eTag = mockMvc.perform(get("/main/get").param("key", "ETagKey"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(content().string("ETagValue"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        //Unchanged value shouldn't be sent again
+        mockMvc.perform(get("/main/get").param("key", "ETagKey").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        //Tag should change after any set
+        mockMvc.perform(post("/main/set").param("key", "ETagKey").param("value", "ETagValue"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/main/get").param("key", "ETagKey").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+                .andExpect(content().string("ETagValue"));
+    }
+
+    @Test
+    void rawNotModifiedTest() throws Exception {
+        byte[] value = {1, 2, 3};
+        mockMvc.perform(put("/main/raw/RawETagKey").contentType(MediaType.APPLICATION_OCTET_STREAM).content(value))
+                .andExpect(status().isOk());
+        String eTag = mockMvc.perform(get("/main/raw/RawETagKey"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/main/raw/RawETagKey").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void changesVersionTest() throws Exception {
+        //Separate namespace, so expiring keys of other tests don't get into the changes
+        mockMvc.perform(post("/namespaces/create").param("name", "ChangesTest"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/main/set").param("namespace", "ChangesTest").param("key", "ChangesKey1")
+                        .param("value", "ChangesValue1").param("ttl", "9999999"))
+                .andExpect(status().isOk());
+        String version = mockMvc.perform(get("/main/changes").param("namespace", "ChangesTest"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("X-Version"))
+                .andExpect(content().string(containsString("ChangesKey1")))
+                .andReturn().getResponse().getHeader("X-Version");
+        mockMvc.perform(post("/main/set").param("namespace", "ChangesTest").param("key", "ChangesKey2")
+                        .param("value", "ChangesValue2").param("ttl", "9999999"))
+                .andExpect(status().isOk());
+        //Only the value set after the version should be returned
+        String next = mockMvc.perform(get("/main/changes").param("namespace", "ChangesTest").param("since", version))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("ChangesKey2")))
+                .andExpect(content().string(not(containsString("ChangesKey1"))))
+                .andReturn().getResponse().getHeader("X-Version");
+        mockMvc.perform(get("/main/changes").param("namespace", "ChangesTest").param("since", next))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Version", next))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void rawMissingKeyTest() throws Exception {
+        mockMvc.perform(get("/main/raw/MissingKey"))
+                .andExpect(status().isBadRequest());
+    }
+}
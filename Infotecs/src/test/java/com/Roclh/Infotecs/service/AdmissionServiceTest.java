@@ -0,0 +1,68 @@
+package com.Roclh.Infotecs.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionServiceTest {
+
+    private AdmissionService createAdmissionService(boolean enabled) {
+        return new AdmissionService(new SimpleMeterRegistry(), enabled, true, 10, 10, 1, 100);
+    }
+
+    @Test
+    void tryAcquireBulkLimitTest() {
+        AdmissionService admissionService = createAdmissionService(true);
+        //Only one bulk request should be admitted at the same time
+        assertTrue(admissionService.tryAcquire(AdmissionService.Operation.BULK));
+        assertFalse(admissionService.tryAcquire(AdmissionService.Operation.BULK));
+        assertEquals(1, admissionService.getRejected(AdmissionService.Operation.BULK));
+        //Other classes shouldn't be affected
+        assertTrue(admissionService.tryAcquire(AdmissionService.Operation.READ));
+        admissionService.release(AdmissionService.Operation.BULK, 1000);
+        assertTrue(admissionService.tryAcquire(AdmissionService.Operation.BULK));
+    }
+
+    @Test
+    void tryAcquireDisabledTest() {
+        AdmissionService admissionService = createAdmissionService(false);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(admissionService.tryAcquire(AdmissionService.Operation.BULK));
+        }
+        assertEquals(0, admissionService.getRejected(AdmissionService.Operation.BULK));
+    }
+
+    @Test
+    void limitDecreaseOnLatencyTest() {
+        AdmissionService admissionService = createAdmissionService(true);
+        //Warming up with fast requests
+        for (int i = 0; i < 100; i++) {
+            admissionService.tryAcquire(AdmissionService.Operation.READ);
+            admissionService.release(AdmissionService.Operation.READ, 1_000_000);
+        }
+        double limit = admissionService.getLimit(AdmissionService.Operation.READ);
+        //Slow requests at low load shouldn't change the limit
+        admissionService.tryAcquire(AdmissionService.Operation.READ);
+        admissionService.release(AdmissionService.Operation.READ, 100_000_000);
+        assertEquals(limit, admissionService.getLimit(AdmissionService.Operation.READ));
+        //Requests becoming much slower under load should shrink the limit
+        for (int i = 0; i < 20; i++) {
+            while (admissionService.tryAcquire(AdmissionService.Operation.READ)) {
+            }
+            admissionService.release(AdmissionService.Operation.READ, 100_000_000);
+        }
+        assertTrue(admissionService.getLimit(AdmissionService.Operation.READ) < limit);
+    }
+
+    @Test
+    void limitIncreaseUnderLoadTest() {
+        AdmissionService admissionService = createAdmissionService(true);
+        //Keeping the limit busy with requests of the same latency should grow the limit
+        for (int i = 0; i < 100; i++) {
+            while (admissionService.tryAcquire(AdmissionService.Operation.WRITE)) {
+            }
+            admissionService.release(AdmissionService.Operation.WRITE, 1_000_000);
+        }
+        assertTrue(admissionService.getLimit(AdmissionService.Operation.WRITE) > 10);
+    }
+}
@@ -0,0 +1,64 @@
+package com.Roclh.Infotecs.service;
+
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotKeyServiceTest {
+
+    @Test
+    void topHotKeyTest() {
+        //Tracking only 10 keys without sampling
+        HotKeyService hotKeyService = new HotKeyService(true, 10, 1, 60000);
+        for (int i = 0; i < 1000; i++) {
+            hotKeyService.record(NamespaceService.DEFAULT, "HotKey", HotKeyService.Operation.GET);
+            hotKeyService.record(NamespaceService.DEFAULT, "ColdKey" + i, HotKeyService.Operation.SET);
+        }
+        List<Map<String, Object>> top = hotKeyService.top(3);
+        assertEquals(3, top.size());
+        assertEquals("HotKey", top.get(0).get("key"));
+        assertEquals(1000L, top.get(0).get("gets"));
+        assertEquals(0L, top.get(0).get("sets"));
+    }
+
+    @Test
+    void topNamespacesTest() {
+        HotKeyService hotKeyService = new HotKeyService(true, 10, 1, 60000);
+        for (int i = 0; i < 10; i++) {
+            hotKeyService.record(NamespaceService.DEFAULT, "HotKey", HotKeyService.Operation.GET);
+        }
+        hotKeyService.record("Test", "HotKey", HotKeyService.Operation.SET);
+        //The same key in another namespace is another key
+        List<Map<String, Object>> top = hotKeyService.top(10);
+        assertEquals(2, top.size());
+        assertEquals(NamespaceService.DEFAULT, top.get(0).get("namespace"));
+        assertEquals(10L, top.get(0).get("count"));
+        assertEquals("Test", top.get(1).get("namespace"));
+        assertEquals("HotKey", top.get(1).get("key"));
+        assertEquals(1L, top.get(1).get("sets"));
+    }
+
+    @Test
+    void topDisabledTest() {
+        HotKeyService hotKeyService = new HotKeyService(false, 10, 1, 60000);
+        hotKeyService.record(NamespaceService.DEFAULT, "HotKey", HotKeyService.Operation.GET);
+        assertTrue(hotKeyService.top(10).isEmpty());
+    }
+
+    @Test
+    void topWindowResetTest() {
+        try {
+            HotKeyService hotKeyService = new HotKeyService(true, 10, 1, 5);
+            hotKeyService.record(NamespaceService.DEFAULT, "OldKey", HotKeyService.Operation.GET);
+            //Waiting until the window is over
+            Thread.sleep(10);
+            hotKeyService.record(NamespaceService.DEFAULT, "NewKey", HotKeyService.Operation.GET);
+            List<Map<String, Object>> top = hotKeyService.top(10);
+            assertEquals(1, top.size());
+            assertEquals("NewKey", top.get(0).get("key"));
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+}
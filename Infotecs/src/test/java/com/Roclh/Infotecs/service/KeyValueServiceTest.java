@@ -5,6 +5,8 @@ import org.junit.jupiter.api.Test;
 import javax.xml.bind.ValidationException;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -218,6 +220,289 @@ class KeyValueServiceTest {
         }
     }
 
+    @Test
+    void dumpDeltaOnlyChangedTest() {
+        try {
+            keyValueService.set("Test8.1", "Test8.1Value");
+            keyValueService.set("Test8.2", "Test8.2Value");
+            keyValueService.dump();
+            //Only the edited value and the removed key should get into the delta
+            keyValueService.set("Test8.1", "Test8.1NewValue");
+            keyValueService.remove("Test8.2");
+            String correctJson = "{\"key\":\"Test8.1\",\"value\":\"Test8.1NewValue\",\"remainingLifespan\":*}\r\n" +
+                    "{\"key\":\"Test8.2\",\"removed\":true}\r\n";
+            assertEquals(correctJson, keyValueService.dumpDelta().replaceAll("\\d{4,5}", "*"));
+            //Nothing changed since the delta above
+            assertEquals("", keyValueService.dumpDelta());
+        } catch (ValidationException e) {
+            e.printStackTrace();
+        } finally {
+            deleteDeltas();
+        }
+    }
+
+    @Test
+    void loadDeltaChainTest() {
+        try {
+            keyValueService.set("Test9.1", "Test9.1Value");
+            keyValueService.set("Test9.2", "Test9.2Value");
+            keyValueService.dump();
+            keyValueService.set("Test9.1", "Test9.1NewValue");
+            keyValueService.dumpDelta();
+            keyValueService.remove("Test9.2");
+            keyValueService.set("Test9.3", "Test9.3Value");
+            keyValueService.dumpDelta();
+            //Base snapshot and both deltas should be applied to an empty memory
+            KeyValueService loadedService = new KeyValueService();
+            assertTrue(loadedService.load());
+            assertEquals(2, loadedService.size());
+            assertEquals("Test9.1NewValue", loadedService.get("Test9.1").getValue());
+            assertEquals("Test9.3Value", loadedService.get("Test9.3").getValue());
+        } catch (FileNotFoundException | ValidationException e) {
+            e.printStackTrace();
+        } finally {
+            deleteDeltas();
+        }
+    }
+
+    @Test
+    void loadDeltaGapTest() {
+        try {
+            keyValueService.set("Test9.4", "Test9.4Value");
+            keyValueService.dump();
+            keyValueService.set("Test9.4", "Test9.4NewValue");
+            keyValueService.dumpDelta();
+            keyValueService.set("Test9.5", "Test9.5Value");
+            long since = keyValueService.getCheckpoint();
+            keyValueService.dumpDelta();
+            keyValueService.set("Test9.6", "Test9.6Value");
+            keyValueService.dumpDelta();
+            //Deleting the middle of the chain
+            File[] deltas = new File(".").listFiles((dir, name) -> name.startsWith("dump." + since + "-"));
+            assertNotNull(deltas);
+            assertEquals(1, deltas.length);
+            assertTrue(deltas[0].delete());
+            KeyValueService loadedService = new KeyValueService();
+            assertThrows(ValidationException.class, loadedService::load, "Expected ValidationException to throw, but didn't thrown");
+            assertEquals(0, loadedService.size());
+        } catch (ValidationException e) {
+            e.printStackTrace();
+        } finally {
+            deleteDeltas();
+        }
+    }
+
+    @Test
+    void dumpDeltaAheadTest() {
+        try {
+            keyValueService.dump();
+            keyValueService.set("Test9.7", "Test9.7Value");
+            //Changes before the requested checkpoint would be lost on load
+            assertThrows(ValidationException.class, () -> keyValueService.dumpDelta(keyValueService.getSequence()),
+                    "Expected ValidationException to throw, but didn't thrown");
+        } catch (ValidationException e) {
+            e.printStackTrace();
+        } finally {
+            deleteDeltas();
+        }
+    }
+
+    @Test
+    void dumpDeltaRestartTest() {
+        try {
+            KeyValueService firstService = new KeyValueService("restart", defaultTtl, 0, 0);
+            firstService.set("Test9.8", "Test9.8OldValue");
+            firstService.dump();
+            for (int i = 0; i < 100; i++) {
+                firstService.set("Test9.9", "Test9.9Value" + i);
+            }
+            firstService.dumpDelta();
+            //The next process with the same dump name continues numbering after the deltas on disk
+            KeyValueService secondService = new KeyValueService("restart", defaultTtl, 0, 0);
+            assertTrue(secondService.getSequence() >= firstService.getSequence());
+            secondService.set("Test9.8", "Test9.8NewValue");
+            assertThrows(ValidationException.class, secondService::dumpDelta,
+                    "Expected ValidationException to throw, but didn't thrown");
+            assertTrue(secondService.load());
+            secondService.set("Test9.8", "Test9.8NewValue");
+            secondService.dumpDelta();
+            KeyValueService loadedService = new KeyValueService("restart", defaultTtl, 0, 0);
+            assertTrue(loadedService.load());
+            assertEquals("Test9.8NewValue", loadedService.get("Test9.8").getValue());
+            assertEquals("Test9.9Value99", loadedService.get("Test9.9").getValue());
+        } catch (FileNotFoundException | ValidationException e) {
+            e.printStackTrace();
+        } finally {
+            deleteDeltas();
+            new File("restart.txt").delete();
+        }
+    }
+
+    private void deleteDeltas() {
+        File[] deltas = new File(".").listFiles((dir, name) -> name.endsWith(".delta"));
+        if (deltas != null) {
+            for (File delta : deltas) {
+                delta.delete();
+            }
+        }
+    }
+
+    @Test
+    void setBytesTest() {
+        try {
+            //Raw bytes should be stored and returned without copying
+            byte[] value = {0, -1, 2, -3};
+            assertTrue(keyValueService.set("Test10", value, defaultTtl));
+            assertSame(value, keyValueService.get("Test10").getBytes());
+            assertFalse(keyValueService.set("Test10", (byte[]) null, defaultTtl));
+        } catch (ValidationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void loadBytesTest() {
+        try {
+            //Bytes that are not valid UTF-8 should survive dump and load
+            byte[] value = {0, -1, 2, -3};
+            keyValueService.set("Test11", value, defaultTtl);
+            keyValueService.set("Test11.1", "Test11.1Value");
+            keyValueService.dump();
+            KeyValueService loadedService = new KeyValueService();
+            loadedService.load();
+            assertArrayEquals(value, loadedService.get("Test11").getBytes());
+            assertTrue(loadedService.get("Test11").isBinary());
+            assertEquals("Test11.1Value", loadedService.get("Test11.1").getValue());
+        } catch (FileNotFoundException | ValidationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void getChangesTest() {
+        try {
+            keyValueService.set("Test12.1", "Test12.1Value");
+            keyValueService.set("Test12.2", "Test12.2Value");
+            long version = keyValueService.getSequence();
+            //Only values changed after the version should be returned
+            keyValueService.set("Test12.2", "Test12.2NewValue");
+            String correctJson = "{\"key\":\"Test12.2\",\"value\":\"Test12.2NewValue\",\"remainingLifespan\":*}\r\n";
+            assertEquals(correctJson, keyValueService.getChanges(version).replaceAll("\\d{4,5}", "*"));
+            assertEquals("", keyValueService.getChanges(keyValueService.getSequence()));
+        } catch (ValidationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void getChangesRemovedTest() {
+        try {
+            long version = keyValueService.getSequence();
+            keyValueService.set("Test12.3", "Test12.3Value");
+            keyValueService.set("Test12.4", "Test12.4Value");
+            keyValueService.remove("Test12.3");
+            //Removed value should be returned only as a removed key
+            String correctJson = "{\"key\":\"Test12.4\",\"value\":\"Test12.4Value\",\"remainingLifespan\":*}\r\n" +
+                    "{\"key\":\"Test12.3\",\"removed\":true}\r\n";
+            assertEquals(correctJson, keyValueService.getChanges(version).replaceAll("\\d{4,5}", "*"));
+        } catch (ValidationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void getChangesConcurrentTest() {
+        try {
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    keyValueService.set("Test12.5." + i, "Test12.5Value", 9999999);
+                }
+            });
+            writer.start();
+            //Every key should be delivered by some poll, no matter when the poll happened
+            Set<String> delivered = new HashSet<>();
+            long since = 0;
+            while (writer.isAlive() || since < keyValueService.getSequence()) {
+                long version = keyValueService.getSequence();
+                for (String line : keyValueService.getChanges(since).split("\r\n")) {
+                    if (!line.isEmpty()) {
+                        delivered.add(new KeyValue(line).getKey());
+                    }
+                }
+                since = version;
+            }
+            writer.join();
+            assertEquals(20000, delivered.size());
+        } catch (ValidationException | InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void getChangesAfterDumpTest() {
+        try {
+            keyValueService.set("Test13", "Test13Value");
+            long version = keyValueService.getSequence();
+            keyValueService.remove("Test13");
+            keyValueService.dump();
+            //Dump shouldn't make pollers lose removed keys
+            assertEquals("{\"key\":\"Test13\",\"removed\":true}\r\n", keyValueService.getChanges(version));
+        } catch (ValidationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void removedKeysLimitTest() {
+        try {
+            keyValueService.set("Test13.1", "Test13.1Value");
+            long version = keyValueService.getSequence();
+            keyValueService.remove("Test13.1");
+            for (int i = 0; i < KeyValueService.MAX_REMOVED_KEYS; i++) {
+                keyValueService.set("Test13.2." + i, "Test13.2Value");
+                keyValueService.remove("Test13.2." + i);
+            }
+            //The oldest removed key is forgotten without a dump once there are too many of them
+            assertThrows(ValidationException.class, () -> keyValueService.getChanges(version),
+                    "Expected ValidationException to throw, but didn't thrown");
+            long last = keyValueService.getSequence() - 1;
+            assertEquals("{\"key\":\"Test13.2." + (KeyValueService.MAX_REMOVED_KEYS - 1) + "\",\"removed\":true}\r\n",
+                    keyValueService.getChanges(last));
+        } catch (ValidationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void getETagTest() {
+        try {
+            keyValueService.set("Test14", "Test14Value");
+            String eTag = keyValueService.getETag(keyValueService.get("Test14"));
+            assertEquals(eTag, keyValueService.getETag(keyValueService.get("Test14")));
+            //Tag should change on every set even if the value is the same
+            keyValueService.set("Test14", "Test14Value");
+            assertNotEquals(eTag, keyValueService.getETag(keyValueService.get("Test14")));
+        } catch (ValidationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void getETagConsistentTest() {
+        try {
+            keyValueService.set("Test15", "Test15Value");
+            KeyValue keyValue = keyValueService.get("Test15");
+            String eTag = keyValueService.getETag(keyValue);
+            //A keyValue got before the set should keep both its tag and its value
+            keyValueService.set("Test15", "Test15NewValue");
+            assertEquals(eTag, keyValueService.getETag(keyValue));
+            assertEquals("Test15Value", keyValue.getValue());
+            assertEquals("Test15NewValue", keyValueService.get("Test15").getValue());
+        } catch (ValidationException e) {
+            e.printStackTrace();
+        }
+    }
+
     @Test
     void checkTimeWhenNothingNeededToChange() {
         //Creating values in service
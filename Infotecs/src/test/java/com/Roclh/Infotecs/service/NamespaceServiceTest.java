@@ -0,0 +1,156 @@
+package com.Roclh.Infotecs.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import javax.xml.bind.ValidationException;
+import java.io.File;
+import java.util.Optional;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NamespaceServiceTest {
+    private final NamespaceService namespaceService = new NamespaceService(new SimpleMeterRegistry(), 10000, 0, 0, 100);
+    private final KeyValueService keyValueService = namespaceService.getDefault();
+
+    @Test
+    void getDefaultTest() {
+        try {
+            assertSame(keyValueService, namespaceService.get(Optional.empty()));
+            assertSame(keyValueService, namespaceService.get(NamespaceService.DEFAULT));
+        } catch (ValidationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void defaultSettingsTest() {
+        //Default namespace should take the same settings as namespaces created without them
+        KeyValueService configured = new NamespaceService(new SimpleMeterRegistry(), 5000, 2, 1000, 100).getDefault();
+        assertEquals(5000, configured.getDefaultTtl());
+        assertEquals(2, configured.getMaxEntries());
+        assertEquals(1000, configured.getMaxMemory());
+    }
+
+    @Test
+    void createSeparateKeyspaceTest() {
+        try {
+            assertTrue(namespaceService.create("Tenant1", Optional.of(5000L), Optional.empty(), Optional.empty()));
+            assertFalse(namespaceService.create("Tenant1", Optional.empty(), Optional.empty(), Optional.empty()));
+            KeyValueService tenant = namespaceService.get("Tenant1");
+            assertEquals(5000, tenant.getDefaultTtl());
+            //Same key in different namespaces should have different values
+            tenant.set("Test1", "Tenant1Value");
+            keyValueService.set("Test1", "DefaultValue");
+            assertEquals("Tenant1Value", tenant.get("Test1").getValue());
+            assertEquals("DefaultValue", keyValueService.get("Test1").getValue());
+        } catch (ValidationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void createIncorrectNameTest() {
+        ValidationException thrown = assertThrows(
+                ValidationException.class,
+                () -> namespaceService.create("../Tenant", Optional.empty(), Optional.empty(), Optional.empty()),
+                "Expected ValidationException to throw, but didn't thrown"
+        );
+    }
+
+    @Test
+    void entriesQuotaTest() {
+        try {
+            namespaceService.create("Tenant2", Optional.empty(), Optional.of(2L), Optional.empty());
+            KeyValueService tenant = namespaceService.get("Tenant2");
+            assertTrue(tenant.set("Test1", "Test1Value"));
+            assertTrue(tenant.set("Test2", "Test2Value"));
+            //New keys over the quota should be rejected, existing ones still can be edited
+            assertFalse(tenant.set("Test3", "Test3Value"));
+            assertTrue(tenant.set("Test2", "Test2NewValue"));
+            assertEquals(1, tenant.getRejected());
+            tenant.remove("Test1");
+            assertTrue(tenant.set("Test3", "Test3Value"));
+        } catch (ValidationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void memoryQuotaTest() {
+        try {
+            namespaceService.create("Tenant3", Optional.empty(), Optional.empty(), Optional.of(1000L));
+            KeyValueService tenant = namespaceService.get("Tenant3");
+            assertTrue(tenant.set("Test1", "Test1Value"));
+            assertFalse(tenant.set("Test2", new byte[1000], 10000));
+            assertTrue(tenant.getMemory() <= 1000);
+        } catch (ValidationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void dropTest() {
+        try {
+            namespaceService.create("Tenant4", Optional.empty(), Optional.empty(), Optional.empty());
+            for (int i = 0; i < 1000; i++) {
+                namespaceService.get("Tenant4").set("Test" + i, "Test" + i + "Value");
+            }
+            assertEquals(1000, namespaceService.drop("Tenant4"));
+        } catch (ValidationException e) {
+            e.printStackTrace();
+        }
+        //Dropped namespace shouldn't exist anymore
+        ValidationException thrown = assertThrows(
+                ValidationException.class,
+                () -> namespaceService.get("Tenant4"),
+                "Expected ValidationException to throw, but didn't thrown"
+        );
+    }
+
+    @Test
+    void dropDeletesDumpsTest() {
+        try {
+            namespaceService.create("Tenant5", Optional.empty(), Optional.empty(), Optional.empty());
+            KeyValueService tenant = namespaceService.get("Tenant5");
+            tenant.set("Test1", "Test1Value");
+            tenant.dump();
+            tenant.set("Test2", "Test2Value");
+            tenant.dumpDelta();
+            File[] dumps = new File(".").listFiles((dir, name) -> name.startsWith("dump-Tenant5."));
+            assertNotNull(dumps);
+            assertEquals(2, dumps.length);
+            namespaceService.drop("Tenant5");
+            //Dropped namespace shouldn't leave its dump and deltas on disk
+            for (File dump : dumps) {
+                assertFalse(dump.exists());
+            }
+        } catch (ValidationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void createMaxCountTest() {
+        try {
+            NamespaceService limitedService = new NamespaceService(new SimpleMeterRegistry(), 10000, 0, 0, 2);
+            assertTrue(limitedService.create("Tenant6", Optional.empty(), Optional.empty(), Optional.empty()));
+            assertFalse(limitedService.create("Tenant6", Optional.empty(), Optional.empty(), Optional.empty()));
+            //Default namespace counts too, so there is no room for another one
+            assertThrows(ValidationException.class,
+                    () -> limitedService.create("Tenant7", Optional.empty(), Optional.empty(), Optional.empty()),
+                    "Expected ValidationException to throw, but didn't thrown");
+            limitedService.drop("Tenant6");
+            assertTrue(limitedService.create("Tenant7", Optional.empty(), Optional.empty(), Optional.empty()));
+        } catch (ValidationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void dropDefaultTest() {
+        ValidationException thrown = assertThrows(
+                ValidationException.class,
+                () -> namespaceService.drop(NamespaceService.DEFAULT),
+                "Expected ValidationException to throw, but didn't thrown"
+        );
+    }
+}
@@ -0,0 +1,99 @@
+package com.Roclh.Infotecs.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import javax.xml.bind.ValidationException;
+import java.io.File;
+import java.io.IOException;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreloadServiceTest {
+
+    @TempDir
+    File directory;
+
+    private NamespaceService createNamespaceService() {
+        return new NamespaceService(new SimpleMeterRegistry(), 10000, 0, 0, 100);
+    }
+
+    @Test
+    void preloadLatestSnapshotTest() {
+        try {
+            //Creating a snapshot of 12000 values, which is more than one batch
+            NamespaceService namespaceService = createNamespaceService();
+            KeyValueService keyValueService = namespaceService.getDefault();
+            for (int i = 0; i < 12000; i++) {
+                keyValueService.set("Test" + i, "Test" + i + "Value");
+            }
+            new SnapshotService(namespaceService, false, 60000, 10000, 3, directory.getPath(), 0).snapshot();
+            //Preloading it into an empty memory
+            NamespaceService loadedNamespaces = createNamespaceService();
+            KeyValueService loadedService = loadedNamespaces.getDefault();
+            SnapshotService snapshotService = new SnapshotService(loadedNamespaces, false, 60000, 10000, 3, directory.getPath(), 0);
+            PreloadService preloadService = new PreloadService(loadedNamespaces, snapshotService, true, 4);
+            assertEquals(PreloadService.State.PENDING, preloadService.getState());
+            preloadService.preload();
+            assertEquals(PreloadService.State.LOADED, preloadService.getState());
+            assertEquals(12000, preloadService.getLoaded());
+            assertEquals(12000, preloadService.getParsed());
+            assertEquals(12000, loadedService.size());
+            assertEquals("Test11999Value", loadedService.get("Test11999").getValue());
+            //Numbering continues after the snapshot, but deltas need a dump first
+            assertTrue(loadedService.getSequence() >= keyValueService.getSequence());
+            assertThrows(ValidationException.class, loadedService::dumpDelta,
+                    "Expected ValidationException to throw, but didn't thrown");
+        } catch (IOException | ValidationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void preloadNewerDumpTest() {
+        try {
+            NamespaceService namespaceService = createNamespaceService();
+            KeyValueService keyValueService = namespaceService.getDefault();
+            keyValueService.set("Test1", "Test1Value");
+            keyValueService.set("Test2", "Test2Value");
+            SnapshotService snapshotService = new SnapshotService(namespaceService, false, 60000, 10000, 3, directory.getPath(), 0);
+            File snapshot = snapshotService.snapshot();
+            assertTrue(snapshot.setLastModified(System.currentTimeMillis() - 60000));
+            //The manual dump and its delta are newer than the snapshot, so they should be preloaded instead
+            keyValueService.set("Test1", "Test1NewValue");
+            keyValueService.dump();
+            keyValueService.remove("Test2");
+            keyValueService.dumpDelta();
+            NamespaceService loadedNamespaces = createNamespaceService();
+            KeyValueService loadedService = loadedNamespaces.getDefault();
+            PreloadService preloadService = new PreloadService(loadedNamespaces,
+                    new SnapshotService(loadedNamespaces, false, 60000, 10000, 3, directory.getPath(), 0), true, 4);
+            preloadService.preload();
+            assertEquals(PreloadService.State.LOADED, preloadService.getState());
+            assertEquals("dump.txt", preloadService.getSource());
+            assertEquals(3, preloadService.getParsed());
+            assertEquals(1, loadedService.size());
+            assertEquals("Test1NewValue", loadedService.get("Test1").getValue());
+            assertTrue(loadedService.getSequence() >= keyValueService.getSequence());
+        } catch (IOException | ValidationException e) {
+            e.printStackTrace();
+        } finally {
+            File[] deltas = new File(".").listFiles((dir, name) -> name.endsWith(".delta"));
+            if (deltas != null) {
+                for (File delta : deltas) {
+                    delta.delete();
+                }
+            }
+        }
+    }
+
+    @Test
+    void preloadDisabledTest() {
+        NamespaceService namespaceService = createNamespaceService();
+        KeyValueService keyValueService = namespaceService.getDefault();
+        SnapshotService snapshotService = new SnapshotService(namespaceService, false, 60000, 10000, 3, directory.getPath(), 0);
+        PreloadService preloadService = new PreloadService(namespaceService, snapshotService, false, 0);
+        preloadService.run(null);
+        assertEquals(PreloadService.State.DISABLED, preloadService.getState());
+        assertEquals(0, keyValueService.size());
+    }
+}
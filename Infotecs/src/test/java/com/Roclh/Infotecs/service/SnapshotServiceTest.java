@@ -0,0 +1,60 @@
+package com.Roclh.Infotecs.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import javax.xml.bind.ValidationException;
+import java.io.File;
+import java.io.IOException;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotServiceTest {
+    private final NamespaceService namespaceService = new NamespaceService(new SimpleMeterRegistry(), 10000, 0, 0, 100);
+    private final KeyValueService keyValueService = namespaceService.getDefault();
+
+    @TempDir
+    File directory;
+
+    private SnapshotService createSnapshotService(int retain) {
+        return new SnapshotService(namespaceService, false, 60000, 10000, retain, directory.getPath(), 0);
+    }
+
+    @Test
+    void snapshotLoadTest() {
+        try {
+            keyValueService.set("Test1", "Test1Value");
+            keyValueService.set("Test2", "Test2Value");
+            File snapshot = createSnapshotService(3).snapshot();
+            //Snapshot should contain all the values and no temporary files should be left
+            KeyValueService loadedService = new KeyValueService();
+            assertTrue(loadedService.load(snapshot));
+            assertEquals(2, loadedService.size());
+            assertEquals("Test2Value", loadedService.get("Test2").getValue());
+            assertEquals(1, directory.listFiles().length);
+        } catch (IOException | ValidationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void snapshotRotationTest() {
+        try {
+            SnapshotService snapshotService = createSnapshotService(2);
+            File last = null;
+            for (int i = 0; i < 4; i++) {
+                keyValueService.set("Test" + i, "Test" + i + "Value");
+                last = snapshotService.snapshot();
+            }
+            //Only the last 2 snapshots should be kept
+            assertEquals(2, directory.listFiles().length);
+            assertEquals(last, snapshotService.getLatest());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void snapshotLatestWhenEmptyTest() {
+        assertNull(createSnapshotService(3).getLatest());
+    }
+}
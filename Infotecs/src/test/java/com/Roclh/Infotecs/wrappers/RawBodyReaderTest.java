@@ -0,0 +1,78 @@
+package com.Roclh.Infotecs.wrappers;
+
+import org.junit.jupiter.api.Test;
+import javax.xml.bind.ValidationException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RawBodyReaderTest {
+    private final RawBodyReader rawBodyReader = new RawBodyReader(200000);
+
+    /**
+     * Submethod that creates a body which is returned in small parts like a slow client sends it
+     *
+     * @param body bytes of the body
+     * @return stream that returns at most 1000 bytes per read
+     */
+    private InputStream slowStream(byte[] body) {
+        return new ByteArrayInputStream(body) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1000));
+            }
+        };
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    void readKnownLengthTest() {
+        try {
+            byte[] body = randomBytes(150000);
+            assertArrayEquals(body, rawBodyReader.read(slowStream(body), body.length));
+            assertEquals(0, rawBodyReader.read(slowStream(new byte[0]), 0).length);
+        } catch (ValidationException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void readUnknownLengthTest() {
+        try {
+            //Body of several chunks should be assembled in order
+            byte[] body = randomBytes(150000);
+            assertArrayEquals(body, rawBodyReader.read(slowStream(body), -1));
+            assertEquals(0, rawBodyReader.read(slowStream(new byte[0]), -1).length);
+        } catch (ValidationException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void readShorterThanLengthTest() {
+        ValidationException thrown = assertThrows(
+                ValidationException.class,
+                () -> rawBodyReader.read(slowStream(randomBytes(1000)), 2000),
+                "Expected ValidationException to throw, but didn't thrown"
+        );
+    }
+
+    @Test
+    void readLargerThanMaxSizeTest() {
+        //Declared length is rejected before anything is read
+        assertThrows(ValidationException.class,
+                () -> rawBodyReader.read(slowStream(new byte[0]), 200001),
+                "Expected ValidationException to throw, but didn't thrown");
+        //Body of unknown length is rejected as soon as it gets over the limit
+        assertThrows(ValidationException.class,
+                () -> rawBodyReader.read(slowStream(randomBytes(200001)), -1),
+                "Expected ValidationException to throw, but didn't thrown");
+    }
+}
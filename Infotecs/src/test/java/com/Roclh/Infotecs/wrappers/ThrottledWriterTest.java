@@ -0,0 +1,50 @@
+package com.Roclh.Infotecs.wrappers;
+
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThrottledWriterTest {
+
+    @Test
+    void writeRateLimitTest() {
+        try {
+            StringWriter out = new StringWriter();
+            char[] chunk = new char[1000];
+            Arrays.fill(chunk, 'a');
+            long start = System.nanoTime();
+            //5000 chars at 10000 chars per second should take about half a second
+            try (ThrottledWriter writer = new ThrottledWriter(out, 10000)) {
+                for (int i = 0; i < 5; i++) {
+                    writer.write(chunk, 0, chunk.length);
+                }
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+            assertEquals(5000, out.toString().length());
+            assertTrue(elapsedMillis >= 450, "Writing took only " + elapsedMillis + " ms");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    void writeUnlimitedTest() {
+        try {
+            StringWriter out = new StringWriter();
+            long start = System.nanoTime();
+            //Rate 0 shouldn't wait at all
+            try (ThrottledWriter writer = new ThrottledWriter(out, 0)) {
+                for (int i = 0; i < 100000; i++) {
+                    writer.write("Test");
+                }
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+            assertEquals(400000, out.toString().length());
+            assertTrue(elapsedMillis < 450, "Writing took " + elapsedMillis + " ms");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}